@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.netbeans.processtreekiller.KillStrategy;
+import org.netbeans.processtreekiller.ProcessQuery;
+import org.netbeans.processtreekiller.ProcessTreeKiller;
+
+/**
+ * Load harness for the kill path: spawns synthetic process trees (see
+ * {@link TreeShape}), kills them through {@link ProcessTreeKiller} and
+ * reports kill latency percentiles, surviving processes and the number of
+ * read/write syscalls issued by the JVM during the kill (taken from
+ * /proc/self/io).
+ *
+ * <p>Usage (Linux only, the library requires a java 8 runtime):</p>
+ *
+ * <pre>
+ * java -cp processtreekiller.jar:jna.jar:winp.jar:processtreekiller-harness.jar \
+ *     org.netbeans.processtreekiller.harness.KillHarness \
+ *     [--shape CHAIN,FAN,DAEMON,ORPHANS,STORM] [--size 50] [--iterations 10] \
+ *     [--strategy PROCESS]
+ * </pre>
+ */
+public class KillHarness {
+
+    private static final String TAG_VARIABLE = "HARNESS_TAG";
+    private static final long SETUP_TIMEOUT = 30000;
+    private static final long SURVIVOR_GRACE = 1000;
+
+    private final int size;
+    private final int iterations;
+
+    KillHarness(int size, int iterations) {
+        this.size = size;
+        this.iterations = iterations;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!System.getProperty("os.name").toLowerCase(Locale.ENGLISH).contains("linux")) {
+            System.err.println("The harness only supports linux");
+            System.exit(1);
+        }
+        List<TreeShape> shapes = Arrays.asList(TreeShape.values());
+        int size = 50;
+        int iterations = 10;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "--shape":
+                    shapes = new ArrayList<>();
+                    for (String shape : args[i + 1].split(",")) {
+                        shapes.add(TreeShape.valueOf(shape.trim().toUpperCase(Locale.ENGLISH)));
+                    }
+                    break;
+                case "--size":
+                    size = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--strategy":
+                    ProcessTreeKiller.strategy = KillStrategy.valueOf(args[i + 1].trim().toUpperCase(Locale.ENGLISH));
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        KillHarness harness = new KillHarness(size, iterations);
+        System.out.printf("strategy=%s size=%d iterations=%d%n", ProcessTreeKiller.strategy, size, iterations);
+        System.out.printf("%-8s %9s %9s %9s %9s %10s %12s%n", "shape", "p50 ms", "p90 ms", "p99 ms", "max ms", "survivors", "syscr/syscw");
+        for (TreeShape shape : shapes) {
+            harness.run(shape);
+        }
+    }
+
+    void run(TreeShape shape) throws IOException, InterruptedException {
+        List<Long> latencies = new ArrayList<>();
+        long survivors = 0;
+        long syscalls = 0;
+        for (int i = 0; i < this.iterations; i++) {
+            String tag = UUID.randomUUID().toString();
+            ProcessBuilder pb = new ProcessBuilder("sh", "-c", shape.getScript(), shape.name().toLowerCase(Locale.ENGLISH), Integer.toString(this.size));
+            pb.environment().put(TAG_VARIABLE, tag);
+            pb.environment().put("HARNESS_SCRIPT", shape.getScript());
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(ProcessBuilder.Redirect.appendTo(new File("/dev/null")));
+            Process process = pb.start();
+            if (!shape.isKillWhileGrowing()) {
+                this.awaitProcesses(tag, shape.getExpectedProcesses(this.size));
+            }
+            Map<String, String> model = Collections.singletonMap(TAG_VARIABLE, tag);
+            long syscallsBefore = readSyscalls();
+            long start = System.nanoTime();
+            if (shape.isKillByEnvironment()) {
+                ProcessTreeKiller.get().kill(process, model);
+            } else {
+                ProcessTreeKiller.get().kill(process);
+            }
+            latencies.add(System.nanoTime() - start);
+            syscalls += readSyscalls() - syscallsBefore;
+            process.waitFor(SURVIVOR_GRACE, TimeUnit.MILLISECONDS);
+            Thread.sleep(SURVIVOR_GRACE);
+            long alive = countProcesses(tag);
+            survivors += alive;
+            if (alive > 0) {
+                // don't let survivors distort the next iteration
+                ProcessTreeKiller.get().kill(model);
+            }
+        }
+        Collections.sort(latencies);
+        System.out.printf("%-8s %9.2f %9.2f %9.2f %9.2f %10d %12d%n", shape,
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                percentile(latencies, 100), survivors, syscalls / this.iterations);
+    }
+
+    private void awaitProcesses(String tag, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SETUP_TIMEOUT;
+        while (countProcesses(tag) < expected) {
+            if (System.currentTimeMillis() > deadline) {
+                System.err.printf("Tree %s not complete after %d ms, killing anyway%n", tag, SETUP_TIMEOUT);
+                return;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static long countProcesses(String tag) {
+        return ProcessQuery.stream()
+                .filter(p -> p.getEnvironment().map(env -> tag.equals(env.get(TAG_VARIABLE))).orElse(false))
+                .count();
+    }
+
+    /**
+     * @return number of read and write syscalls issued by this JVM so far
+     */
+    private static long readSyscalls() throws IOException {
+        long result = 0;
+        for (String line : Files.readAllLines(Paths.get("/proc/self/io"), StandardCharsets.ISO_8859_1)) {
+            if (line.startsWith("syscr:") || line.startsWith("syscw:")) {
+                result += Long.parseLong(line.substring(6).trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the percentile of the sorted nano second values in milliseconds
+     */
+    static double percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))) / 1e6;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller.harness;
+
+/**
+ * Synthetic process tree shapes. Each shape is a sh script, that is passed
+ * the size as first argument. Every process of the tree (except for short
+ * lived intermediates) ends up as {@code sleep 600}.
+ */
+enum TreeShape {
+    /**
+     * Chain of nested shells, {@code size} levels deep.
+     */
+    CHAIN(false, "if [ \"$1\" -gt 0 ]; then sh -c \"$HARNESS_SCRIPT\" chain $(( $1 - 1 )) & wait; else exec sleep 600; fi"),
+    /**
+     * One shell with {@code size} direct children.
+     */
+    FAN(false, "i=0; while [ $i -lt \"$1\" ]; do sleep 600 & i=$((i+1)); done; wait"),
+    /**
+     * {@code size} double-forked daemons in their own session, the root stays
+     * alive.
+     */
+    DAEMON(true, "i=0; while [ $i -lt \"$1\" ]; do (setsid sleep 600 </dev/null >/dev/null 2>&1 &); i=$((i+1)); done; exec sleep 600"),
+    /**
+     * {@code size} processes orphaned by their parent, which exits. They can
+     * only be found through the environment.
+     */
+    ORPHANS(true, "i=0; while [ $i -lt \"$1\" ]; do (sleep 600 &); i=$((i+1)); done; exit 0"),
+    /**
+     * {@code size} processes forking recursively, every shell splits its
+     * remaining budget between two children, which do the same. The kill is
+     * issued right away, while the children are still spawning children.
+     */
+    STORM(false, "if [ \"$1\" -le 1 ]; then exec sleep 600; fi; h=$(( ($1 - 1) / 2 )); "
+            + "if [ $h -gt 0 ]; then sh -c \"$HARNESS_SCRIPT\" storm $h & fi; "
+            + "sh -c \"$HARNESS_SCRIPT\" storm $(( $1 - 1 - h )) & wait");
+
+    private final boolean killByEnvironment;
+    private final String script;
+
+    TreeShape(boolean killByEnvironment, String script) {
+        this.killByEnvironment = killByEnvironment;
+        this.script = script;
+    }
+
+    /**
+     * @return true if the processes escape the tree of the started process
+     * and have to be killed through their environment
+     */
+    boolean isKillByEnvironment() {
+        return this.killByEnvironment;
+    }
+
+    String getScript() {
+        return this.script;
+    }
+
+    /**
+     * @return number of processes expected to be alive once the tree is
+     * completely set up
+     */
+    int getExpectedProcesses(int size) {
+        return this == ORPHANS || this == STORM ? size : size + 1;
+    }
+
+    /**
+     * @return true if the kill is issued without waiting for the tree to be
+     * set up completely
+     */
+    boolean isKillWhileGrowing() {
+        return this == STORM;
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled matcher for the command line (argv) of a process. Each element
+ * is either bound to an argument position or has to match any argument.
+ * Literal and glob elements are compared on the raw bytes of the command
+ * line. Regular expressions see ASCII arguments through a view of the raw
+ * bytes, only arguments containing other bytes are decoded with the
+ * platform charset.
+ *
+ * <pre>
+ * ArgvMatcher matcher = ArgvMatcher.builder()
+ *     .glob(0, "*&#47;java")
+ *     .literal(ArgvMatcher.ANY, "org.example.Main")
+ *     .build();
+ * ProcessTreeKiller.get().kill(matcher);
+ * </pre>
+ */
+public final class ArgvMatcher {
+
+    /**
+     * Position for elements, that have to match any argument.
+     */
+    public static final int ANY = -1;
+
+    /**
+     * ASCII bytes decode to the same characters in the platform charset, so
+     * ASCII arguments need not be decoded.
+     */
+    private static final boolean ASCII_COMPATIBLE = isAsciiCompatible(Charset.defaultCharset());
+
+    private final Element[] elements;
+
+    private ArgvMatcher(List<Element> elements) {
+        this.elements = elements.toArray(new Element[0]);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Match the raw command line: the arguments separated (and optionally
+     * terminated) by NUL bytes, as found in /proc/&lt;pid&gt;/cmdline.
+     */
+    public boolean matches(byte[] cmdline) {
+        int count = 0;
+        for (int i = 0; i < cmdline.length; i++) {
+            if (cmdline[i] == 0 || i == cmdline.length - 1) {
+                count++;
+            }
+        }
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int n = 0;
+        int start = 0;
+        for (int i = 0; i < cmdline.length; i++) {
+            if (cmdline[i] == 0) {
+                starts[n] = start;
+                ends[n++] = i;
+                start = i + 1;
+            } else if (i == cmdline.length - 1) {
+                starts[n] = start;
+                ends[n++] = i + 1;
+            }
+        }
+        for (Element element : this.elements) {
+            if (element.position == ANY) {
+                boolean found = false;
+                for (int i = 0; i < count && !found; i++) {
+                    found = element.matches(cmdline, starts[i], ends[i]);
+                }
+                if (!found) {
+                    return false;
+                }
+            } else if (element.position >= count
+                    || !element.matches(cmdline, starts[element.position], ends[element.position])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Match already decoded arguments, they are encoded with the platform
+     * charset.
+     */
+    public boolean matches(List<String> arguments) {
+        return this.matches(toCmdline(arguments));
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        String ascii = "\t !09AZaz~";
+        return Arrays.equals(ascii.getBytes(charset), ascii.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static byte[] toCmdline(List<String> arguments) {
+        Charset charset = Charset.defaultCharset();
+        List<byte[]> encoded = new ArrayList<>(arguments.size());
+        int length = 0;
+        for (String argument : arguments) {
+            byte[] data = argument.getBytes(charset);
+            encoded.add(data);
+            length += data.length + 1;
+        }
+        byte[] result = new byte[length];
+        int pos = 0;
+        for (byte[] data : encoded) {
+            System.arraycopy(data, 0, result, pos, data.length);
+            pos += data.length + 1;
+        }
+        return result;
+    }
+
+    public static final class Builder {
+
+        private final List<Element> elements = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * The argument has to be equal to {@code value}.
+         */
+        public Builder literal(int position, String value) {
+            this.elements.add(new Literal(position, value.getBytes(Charset.defaultCharset())));
+            return this;
+        }
+
+        /**
+         * The argument has to match the glob {@code pattern}: '*' matches any
+         * sequence of bytes, '?' matches exactly one byte and '\' escapes the
+         * next character.
+         */
+        public Builder glob(int position, String pattern) {
+            this.elements.add(new Glob(position, pattern.getBytes(Charset.defaultCharset())));
+            return this;
+        }
+
+        /**
+         * The complete argument has to match the regular expression
+         * {@code regex}.
+         */
+        public Builder regex(int position, String regex) {
+            this.elements.add(new Regex(position, Pattern.compile(regex)));
+            return this;
+        }
+
+        public ArgvMatcher build() {
+            return new ArgvMatcher(this.elements);
+        }
+    }
+
+    private abstract static class Element {
+
+        final int position;
+
+        Element(int position) {
+            if (position < ANY) {
+                throw new IllegalArgumentException("Invalid position: " + position);
+            }
+            this.position = position;
+        }
+
+        abstract boolean matches(byte[] data, int start, int end);
+    }
+
+    private static final class Literal extends Element {
+
+        private final byte[] value;
+
+        Literal(int position, byte[] value) {
+            super(position);
+            this.value = value;
+        }
+
+        @Override
+        boolean matches(byte[] data, int start, int end) {
+            if (end - start != this.value.length) {
+                return false;
+            }
+            for (int i = 0; i < this.value.length; i++) {
+                if (data[start + i] != this.value[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Glob extends Element {
+
+        private final byte[] pattern;
+
+        Glob(int position, byte[] pattern) {
+            super(position);
+            this.pattern = pattern;
+        }
+
+        @Override
+        boolean matches(byte[] data, int start, int end) {
+            int p = 0;
+            int d = start;
+            int starPattern = -1;
+            int starData = -1;
+            while (d < end) {
+                if (p < this.pattern.length && this.pattern[p] == '*') {
+                    starPattern = p++;
+                    starData = d;
+                } else if (p < this.pattern.length && this.matchesSingle(p, data[d])) {
+                    p += this.pattern[p] == '\\' && p + 1 < this.pattern.length ? 2 : 1;
+                    d++;
+                } else if (starPattern >= 0) {
+                    // backtrack: let the last '*' consume one more byte
+                    p = starPattern + 1;
+                    d = ++starData;
+                } else {
+                    return false;
+                }
+            }
+            while (p < this.pattern.length && this.pattern[p] == '*') {
+                p++;
+            }
+            return p == this.pattern.length;
+        }
+
+        private boolean matchesSingle(int p, byte b) {
+            if (this.pattern[p] == '\\' && p + 1 < this.pattern.length) {
+                return this.pattern[p + 1] == b;
+            }
+            return this.pattern[p] == '?' || this.pattern[p] == b;
+        }
+    }
+
+    private static final class Regex extends Element {
+
+        private final Pattern pattern;
+
+        Regex(int position, Pattern pattern) {
+            super(position);
+            this.pattern = pattern;
+        }
+
+        @Override
+        boolean matches(byte[] data, int start, int end) {
+            CharSequence argument;
+            if (ASCII_COMPATIBLE && isAscii(data, start, end)) {
+                argument = new AsciiSequence(data, start, end);
+            } else {
+                argument = new String(data, start, end - start, Charset.defaultCharset());
+            }
+            return this.pattern.matcher(argument).matches();
+        }
+
+        private static boolean isAscii(byte[] data, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (data[i] < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Read-only view of a byte range holding only ASCII characters.
+     */
+    private static final class AsciiSequence implements CharSequence {
+
+        private final byte[] data;
+        private final int start;
+        private final int end;
+
+        AsciiSequence(byte[] data, int start, int end) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) this.data[this.start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new AsciiSequence(this.data, this.start + from, this.start + to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(this.data, this.start, this.end - this.start, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Access to the cgroup of the JVM. The processes started by the JVM inherit
+ * its cgroup, so on a shared host scanning only the JVM's cgroup subtree is
+ * enough to find them (unless they were explicitly moved to another cgroup).
+ */
+final class CGroups {
+
+    static final Path DEFAULT_ROOT = Paths.get("/sys/fs/cgroup");
+    static final Path SELF_CGROUP = Paths.get("/proc/self/cgroup");
+
+    private CGroups() {
+    }
+
+    /**
+     * Determine the cgroup directory of the process described by
+     * {@code cgroupFile} (the content of /proc/&lt;pid&gt;/cgroup).
+     *
+     * <p>On a pure cgroup v2 system the unified hierarchy is used. With cgroup
+     * v1 (or hybrid) hierarchies the hierarchy with the deepest path is used,
+     * it is the most selective one.</p>
+     *
+     * @return the cgroup directory or null, if it can't be determined
+     */
+    static Path getCgroupDirectory(Path root, Path cgroupFile) throws IOException {
+        Path unified = null;
+        Path best = null;
+        int bestDepth = -1;
+        for (String line : Files.readAllLines(cgroupFile, StandardCharsets.UTF_8)) {
+            // hierarchy-ID:controller-list:cgroup-path
+            String[] parts = line.split(":", 3);
+            if (parts.length != 3 || !parts[2].startsWith("/")) {
+                continue;
+            }
+            String relative = parts[2].substring(1);
+            if ("0".equals(parts[0]) && parts[1].isEmpty()) {
+                unified = relative.isEmpty() ? root : root.resolve(relative);
+                continue;
+            }
+            String controllers = parts[1].startsWith("name=") ? parts[1].substring(5) : parts[1];
+            Path directory = root.resolve(controllers);
+            if (!relative.isEmpty()) {
+                directory = directory.resolve(relative);
+            }
+            int depth = relative.isEmpty() ? 0 : relative.split("/").length;
+            if (depth > bestDepth && Files.isDirectory(directory)) {
+                best = directory;
+                bestDepth = depth;
+            }
+        }
+        if (unified != null && Files.exists(root.resolve("cgroup.controllers"))) {
+            return unified;
+        }
+        return best;
+    }
+
+    /**
+     * Determine the cgroup v2 directory of the process described by
+     * {@code cgroupFile}. With a hybrid hierarchy the v2 hierarchy is mounted
+     * as "unified" below {@code root}.
+     *
+     * @return the cgroup directory or null, if there is no v2 hierarchy
+     */
+    static Path getUnifiedDirectory(Path root, Path cgroupFile) throws IOException {
+        Path mount;
+        if (Files.exists(root.resolve("cgroup.controllers"))) {
+            mount = root;
+        } else if (Files.exists(root.resolve("unified").resolve("cgroup.controllers"))) {
+            mount = root.resolve("unified");
+        } else {
+            return null;
+        }
+        for (String line : Files.readAllLines(cgroupFile, StandardCharsets.UTF_8)) {
+            if (line.startsWith("0::/")) {
+                String relative = line.substring(4);
+                return relative.isEmpty() ? mount : mount.resolve(relative);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Kill all processes in {@code directory} and the cgroups below it with
+     * SIGKILL (requires linux 5.14).
+     *
+     * @return false if the cgroup does not support cgroup.kill
+     */
+    static boolean kill(Path directory) throws IOException {
+        Path kill = directory.resolve("cgroup.kill");
+        if (!Files.exists(kill)) {
+            return false;
+        }
+        Files.write(kill, "1".getBytes(StandardCharsets.ISO_8859_1));
+        return true;
+    }
+
+    /**
+     * Freeze or thaw all processes in {@code directory} and the cgroups below
+     * it (requires linux 5.2). Freezing completes asynchronously.
+     *
+     * @return false if the cgroup does not support cgroup.freeze
+     */
+    static boolean freeze(Path directory, boolean frozen) throws IOException {
+        Path freeze = directory.resolve("cgroup.freeze");
+        if (!Files.exists(freeze)) {
+            return false;
+        }
+        Files.write(freeze, (frozen ? "1" : "0").getBytes(StandardCharsets.ISO_8859_1));
+        return true;
+    }
+
+    /**
+     * @return the sorted pids of all processes in {@code directory} and the
+     * cgroups below it
+     */
+    static int[] listProcesses(Path directory) throws IOException {
+        TreeSet<Integer> pids = new TreeSet<>();
+        List<Path> procFiles;
+        try (Stream<Path> files = Files.walk(directory)) {
+            procFiles = files
+                    .filter(p -> "cgroup.procs".equals(String.valueOf(p.getFileName())))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        for (Path procs : procFiles) {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(procs, StandardCharsets.ISO_8859_1);
+            } catch (IOException ex) {
+                // cgroup was removed in the meantime
+                continue;
+            }
+            for (String line : lines) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    pids.add(Integer.valueOf(line));
+                }
+            }
+        }
+        return pids.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
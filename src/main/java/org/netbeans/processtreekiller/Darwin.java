@@ -34,4 +34,9 @@ final class Darwin extends Unix<DarwinSystem> {
     protected DarwinSystem createSystem() {
         return new DarwinSystem();
     }
+
+    @Override
+    protected DarwinSystem createSystem(int[] pids) {
+        return new DarwinSystem(pids);
+    }
 }
@@ -38,6 +38,7 @@ public interface DarwinCLibrary extends Library {
     public static final int CTL_KERN = 1;
     public static final int KERN_PROC = 14;
     public static final int KERN_PROC_ALL = 0;
+    public static final int KERN_PROC_PID = 1;
     public static final int KERN_ARGMAX = 8;
     public static final int KERN_PROCARGS2 = 49;
 
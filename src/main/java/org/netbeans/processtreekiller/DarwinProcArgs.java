@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Parser for the result of the KERN_PROCARGS2 sysctl. The data is layed out
+ * as:
+ *
+ * <pre>
+ * int argc
+ * exec_path\0
+ * \0\0...          (padding)
+ * argv[0]\0 ... argv[argc - 1]\0
+ * env[0]\0 ... env[n]\0
+ * \0
+ * </pre>
+ *
+ * The parser works on a plain {@link ByteBuffer}, the byte order for
+ * {@code argc} is taken from the buffer.
+ */
+final class DarwinProcArgs {
+
+    private DarwinProcArgs() {
+    }
+
+    static void parse(ByteBuffer buffer, Charset charset, List<String> arguments, EnvVars envVars) {
+        int argc = buffer.getInt();
+        String args0 = readString(buffer, charset);
+        while (buffer.hasRemaining() && buffer.get(buffer.position()) == 0) {
+            buffer.get();
+        }
+        for (int i = 0; i < argc; ++i) {
+            if (!buffer.hasRemaining()) {
+                throw new IllegalStateException("Failed to parse arguments: arg0=" + args0 + ", arguments=" + arguments + ", nargs=" + argc);
+            }
+            arguments.add(readString(buffer, charset));
+        }
+        while (buffer.hasRemaining() && buffer.get(buffer.position()) != 0) {
+            envVars.addLine(readString(buffer, charset));
+        }
+    }
+
+    /**
+     * Read a NUL terminated string, a missing terminator at the end of the
+     * buffer is tolerated.
+     */
+    private static String readString(ByteBuffer buffer, Charset charset) {
+        int start = buffer.position();
+        int end = start;
+        int limit = buffer.limit();
+        while (end < limit && buffer.get(end) != 0) {
+            end++;
+        }
+        byte[] data = new byte[end - start];
+        buffer.get(data);
+        if (buffer.hasRemaining()) {
+            buffer.get();
+        }
+        return new String(data, charset);
+    }
+}
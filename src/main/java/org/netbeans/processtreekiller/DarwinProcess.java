@@ -24,28 +24,30 @@
  */
 package org.netbeans.processtreekiller;
 
-import com.sun.jna.Memory;
-import com.sun.jna.Native;
-import com.sun.jna.ptr.IntByReference;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import static org.netbeans.processtreekiller.DarwinCLibrary.CTL_KERN;
-import static org.netbeans.processtreekiller.DarwinCLibrary.KERN_ARGMAX;
-import static org.netbeans.processtreekiller.DarwinCLibrary.KERN_PROCARGS2;
 
 class DarwinProcess extends UnixProcess<DarwinProcess> {
 
     private final int pid;
     private final int ppid;
+    private final int pgid;
+    private final long startTime;
+    private final int uid;
+    private final char state;
+    private int sid = Integer.MIN_VALUE;
     private EnvVars envVars;
     private List<String> arguments;
 
-    DarwinProcess(DarwinSystem system, int pid, int ppid) {
+    DarwinProcess(DarwinSystem system, int pid, int ppid, int pgid, long startTime, int uid, char state) {
         super(system);
         this.pid = pid;
         this.ppid = ppid;
+        this.pgid = pgid;
+        this.startTime = startTime;
+        this.uid = uid;
+        this.state = state;
     }
 
     @Override
@@ -58,6 +60,44 @@ class DarwinProcess extends UnixProcess<DarwinProcess> {
         return (DarwinProcess) this.system.get(this.ppid);
     }
 
+    @Override
+    public int getPpid() {
+        return this.ppid;
+    }
+
+    @Override
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    @Override
+    public int getUid() {
+        return this.uid;
+    }
+
+    @Override
+    public char getState() {
+        return this.state;
+    }
+
+    @Override
+    public int getPgid() {
+        return this.pgid;
+    }
+
+    @Override
+    public synchronized int getSid() {
+        // kinfo_proc only holds a kernel pointer to the session
+        if (this.sid == Integer.MIN_VALUE) {
+            try {
+                this.sid = UnixCLibrary.LIBC.getsid(this.pid);
+            } catch (LinkageError e) {
+                this.sid = -1;
+            }
+        }
+        return this.sid;
+    }
+
     @Override
     public synchronized EnvVars getEnvVars() {
         if (this.envVars != null) {
@@ -68,7 +108,7 @@ class DarwinProcess extends UnixProcess<DarwinProcess> {
     }
 
     @Override
-    public List<String> getArguments() {
+    public synchronized List<String> getArguments() {
         if (this.arguments != null) {
             return this.arguments;
         }
@@ -77,71 +117,10 @@ class DarwinProcess extends UnixProcess<DarwinProcess> {
     }
 
     private void parse() {
+        this.arguments = new ArrayList<>();
+        this.envVars = new EnvVars();
         try {
-            this.arguments = new ArrayList<>();
-            this.envVars = new EnvVars();
-            DarwinCLibrary.SizeT newLen = new DarwinCLibrary.SizeT();
-            IntByReference argmaxRef = new IntByReference(0);
-            DarwinCLibrary.SizeTByReference size = new DarwinCLibrary.SizeTByReference();
-            size.setValue(4 /*
-             * sizeof(int)
-             */);
-            if (DarwinCLibrary.LIBC.sysctl(new int[]{CTL_KERN, KERN_ARGMAX}, 2, argmaxRef.getPointer(), size, null, newLen) != 0) {
-                throw new IOException("Failed to get kernl.argmax: " + DarwinCLibrary.LIBC.strerror(Native.getLastError()));
-            }
-            int argmax = argmaxRef.getValue();
-            class StringArrayMemory extends Memory {
-
-                private long offset;
-
-                StringArrayMemory(long l) {
-                    super(l);
-                    this.offset = 0L;
-                }
-
-                int readInt() {
-                    int r = this.getInt(this.offset);
-                    this.offset += 4;
-                    return r;
-                }
-
-                byte peek() {
-                    return this.getByte(this.offset);
-                }
-
-                String readString() {
-                    byte ch;
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    while ((ch = this.getByte(this.offset++)) != 0 && this.offset < size()) {
-                        baos.write(ch);
-                    }
-                    return Native.toString(baos.toByteArray());
-                }
-
-                void skip0() {
-                    while (this.getByte(this.offset) == 0 && this.offset < size()) {
-                        ++this.offset;
-                    }
-                }
-            }
-            StringArrayMemory m = new StringArrayMemory(argmax);
-            size.setValue(argmax);
-            if (DarwinCLibrary.LIBC.sysctl(new int[]{CTL_KERN, KERN_PROCARGS2, this.pid}, 3, m, size, null, newLen) != 0) {
-                throw new IOException("Failed to obtain ken.procargs2: " + DarwinCLibrary.LIBC.strerror(Native.getLastError()));
-            }
-            int argc = m.readInt();
-            String args0 = m.readString();
-            m.skip0();
-            try {
-                for (int i = 0; i < argc; ++i) {
-                    this.arguments.add(m.readString());
-                }
-            } catch (IndexOutOfBoundsException e) {
-                throw new IllegalStateException("Failed to parse arguments: arg0=" + args0 + ", arguments=" + this.arguments + ", nargs=" + argc, e);
-            }
-            while (m.peek() != 0) {
-                this.envVars.addLine(m.readString());
-            }
+            ((DarwinSystem) this.system).readProcArgs(this.pid, this.arguments, this.envVars);
         } catch (IOException igored) {
             // empty catch block
         }
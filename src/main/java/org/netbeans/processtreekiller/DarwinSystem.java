@@ -26,12 +26,20 @@ package org.netbeans.processtreekiller;
 
 import com.sun.jna.Memory;
 import com.sun.jna.Native;
+import com.sun.jna.ptr.IntByReference;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static org.netbeans.processtreekiller.DarwinCLibrary.CTL_KERN;
+import static org.netbeans.processtreekiller.DarwinCLibrary.KERN_ARGMAX;
 import static org.netbeans.processtreekiller.DarwinCLibrary.KERN_PROC;
 import static org.netbeans.processtreekiller.DarwinCLibrary.KERN_PROC_ALL;
+import static org.netbeans.processtreekiller.DarwinCLibrary.KERN_PROC_PID;
+import static org.netbeans.processtreekiller.DarwinCLibrary.KERN_PROCARGS2;
 import static org.netbeans.processtreekiller.DarwinCLibrary.sizeOf_kinfo_proc;
 
 class DarwinSystem extends UnixSystem<DarwinProcess> {
@@ -40,6 +48,13 @@ class DarwinSystem extends UnixSystem<DarwinProcess> {
 
     private static final int[] MIB_PROC_ALL = new int[]{CTL_KERN, KERN_PROC, KERN_PROC_ALL};
 
+    private static int argmax;
+
+    /**
+     * Buffer for KERN_PROCARGS2, shared by all processes of this snapshot.
+     */
+    private Memory procArgs;
+
     DarwinSystem() {
         try {
             Memory m;
@@ -63,12 +78,93 @@ class DarwinSystem extends UnixSystem<DarwinProcess> {
             int count = (int) (size.getValue() / sizeOf_kinfo_proc);
             LOGGER.log(Level.FINE, "Found {0} processes", count);
             for (int base = 0; base < size.getValue(); base += sizeOf_kinfo_proc) {
-                int pid = m.getInt((long) (base + 40));
-                int ppid = m.getInt((long) (base + 560));
-                this.processes.put(pid, new DarwinProcess(this, pid, ppid));
+                this.addProcess(m, base);
             }
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Failed to obtain process list", e);
         }
     }
+
+    DarwinSystem(int[] pids) {
+        this.restricted = true;
+        Memory m = new Memory(sizeOf_kinfo_proc);
+        DarwinCLibrary.SizeT newLen = new DarwinCLibrary.SizeT();
+        DarwinCLibrary.SizeTByReference size = new DarwinCLibrary.SizeTByReference();
+        for (int pid : pids) {
+            size.setValue(sizeOf_kinfo_proc);
+            if (DarwinCLibrary.LIBC.sysctl(new int[]{CTL_KERN, KERN_PROC, KERN_PROC_PID, pid}, 4, m, size, null, newLen) != 0) {
+                LOGGER.log(Level.FINE, "Failed to call kern.proc.pid for {0}: {1}", new Object[]{pid, DarwinCLibrary.LIBC.strerror(Native.getLastError())});
+                continue;
+            }
+            // an empty result signals a non-existing process
+            if (size.getValue() >= sizeOf_kinfo_proc) {
+                this.addProcess(m, 0);
+            }
+        }
+    }
+
+    /**
+     * Read arguments and environment of {@code pid}. The native buffer is
+     * allocated once per snapshot and only accessed with the lock held.
+     */
+    synchronized void readProcArgs(int pid, List<String> arguments, EnvVars envVars) throws IOException {
+        if (this.procArgs == null) {
+            this.procArgs = new Memory(getArgMax());
+        }
+        DarwinCLibrary.SizeT newLen = new DarwinCLibrary.SizeT();
+        DarwinCLibrary.SizeTByReference size = new DarwinCLibrary.SizeTByReference();
+        size.setValue(this.procArgs.size());
+        if (DarwinCLibrary.LIBC.sysctl(new int[]{CTL_KERN, KERN_PROCARGS2, pid}, 3, this.procArgs, size, null, newLen) != 0) {
+            throw new IOException("Failed to obtain ken.procargs2: " + DarwinCLibrary.LIBC.strerror(Native.getLastError()));
+        }
+        ByteBuffer buffer = this.procArgs.getByteBuffer(0, size.getValue()).order(ByteOrder.nativeOrder());
+        DarwinProcArgs.parse(buffer, Charset.forName(Native.getDefaultStringEncoding()), arguments, envVars);
+    }
+
+    private static synchronized int getArgMax() throws IOException {
+        if (argmax == 0) {
+            DarwinCLibrary.SizeT newLen = new DarwinCLibrary.SizeT();
+            IntByReference argmaxRef = new IntByReference(0);
+            DarwinCLibrary.SizeTByReference size = new DarwinCLibrary.SizeTByReference();
+            size.setValue(4 /*
+             * sizeof(int)
+             */);
+            if (DarwinCLibrary.LIBC.sysctl(new int[]{CTL_KERN, KERN_ARGMAX}, 2, argmaxRef.getPointer(), size, null, newLen) != 0) {
+                throw new IOException("Failed to get kernl.argmax: " + DarwinCLibrary.LIBC.strerror(Native.getLastError()));
+            }
+            argmax = argmaxRef.getValue();
+        }
+        return argmax;
+    }
+
+    private void addProcess(Memory m, int base) {
+        long startSeconds = m.getLong((long) base);
+        int startMicros = m.getInt((long) (base + 8));
+        int pid = m.getInt((long) (base + 40));
+        byte stat = m.getByte((long) (base + 36));
+        int uid = m.getInt((long) (base + 420));
+        int ppid = m.getInt((long) (base + 560));
+        int pgid = m.getInt((long) (base + 564));
+        this.processes.put(pid, new DarwinProcess(this, pid, ppid, pgid, startSeconds * 1000 + startMicros / 1000, uid, toState(stat)));
+    }
+
+    /**
+     * Map p_stat of extern_proc to the notation used by ps.
+     */
+    private static char toState(byte stat) {
+        switch (stat) {
+            case 1: // SIDL
+                return 'I';
+            case 2: // SRUN
+                return 'R';
+            case 3: // SSLEEP
+                return 'S';
+            case 4: // SSTOP
+                return 'T';
+            case 5: // SZOMB
+                return 'Z';
+            default:
+                return '?';
+        }
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches the environments of many processes against many model maps in a
+ * single pass. Only the keys used by any of the models are indexed
+ * ({@code key=value -> pids}), the pids matching a model are the
+ * intersection of the index entries of its key/value pairs. All models are
+ * answered from the same index. As with
+ * {@link ProcessTreeKiller#hasMatchingEnvVars(Map, Map)} an empty model
+ * matches nothing.
+ */
+final class EnvVarIndex {
+
+    private final List<Map<String, String>> models;
+    private final Set<String> keys = new HashSet<>();
+    private final Map<String, Map<String, Set<Integer>>> index = new HashMap<>();
+
+    EnvVarIndex(Collection<? extends Map<String, String>> models) {
+        this.models = new ArrayList<>(models);
+        for (Map<String, String> model : this.models) {
+            this.keys.addAll(model.keySet());
+        }
+    }
+
+    /**
+     * @return true if no model can match anything, so that reading process
+     * environments can be skipped completely
+     */
+    boolean isEmpty() {
+        return this.keys.isEmpty();
+    }
+
+    void add(int pid, Map<String, String> envVars) {
+        for (String key : this.keys) {
+            String value = envVars.get(key);
+            if (value == null) {
+                continue;
+            }
+            this.index.computeIfAbsent(key, k -> new HashMap<>())
+                    .computeIfAbsent(value, v -> new HashSet<>())
+                    .add(pid);
+        }
+    }
+
+    /**
+     * @return the pids matching each model, in the order the models were
+     * supplied
+     */
+    List<Set<Integer>> match() {
+        List<Set<Integer>> result = new ArrayList<>(this.models.size());
+        for (Map<String, String> model : this.models) {
+            result.add(this.match(model));
+        }
+        return result;
+    }
+
+    /**
+     * @return the pids matching any of the models
+     */
+    Set<Integer> matchAny() {
+        Set<Integer> result = new HashSet<>();
+        for (Set<Integer> pids : this.match()) {
+            result.addAll(pids);
+        }
+        return result;
+    }
+
+    private Set<Integer> match(Map<String, String> model) {
+        Set<Integer> result = null;
+        for (Map.Entry<String, String> e : model.entrySet()) {
+            Set<Integer> pids = this.index.getOrDefault(e.getKey(), Collections.emptyMap()).get(e.getValue());
+            if (pids == null) {
+                return Collections.emptySet();
+            }
+            if (result == null) {
+                result = new HashSet<>(pids);
+            } else {
+                result.retainAll(pids);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result == null ? Collections.emptySet() : result;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chooses the cheapest of the kill methods available for a request. The
+ * caller only offers methods, that find the complete tree. Costs are
+ * tracked as exponentially weighted moving average of the measured
+ * durations (ignoring the first run of each method), methods without
+ * measurement are tried first and from time to time a method other than the
+ * cheapest is chosen, so that the costs follow changes of the system.
+ */
+final class KillPlanner {
+
+    private static final double ALPHA = 0.2;
+    private static final int EXPLORE_INTERVAL = 50;
+
+    private final Map<KillReport.Method, Double> costs = new EnumMap<>(KillReport.Method.class);
+    private final Set<KillReport.Method> used = EnumSet.noneOf(KillReport.Method.class);
+    private int choices;
+
+    /**
+     * @param capable methods able to kill the complete tree, must not be
+     * empty
+     */
+    synchronized KillReport.Method choose(Set<KillReport.Method> capable) {
+        KillReport.Method best = null;
+        KillReport.Method other = null;
+        // reverse declaration order: the more specific methods are first
+        KillReport.Method[] methods = KillReport.Method.values();
+        for (int i = methods.length - 1; i >= 0; i--) {
+            KillReport.Method method = methods[i];
+            if (!capable.contains(method)) {
+                continue;
+            }
+            Double cost = this.costs.get(method);
+            if (cost == null) {
+                return method;
+            }
+            if (best == null || cost < this.costs.get(best)) {
+                other = best;
+                best = method;
+            } else if (other == null) {
+                other = method;
+            }
+        }
+        if (other != null && ++this.choices % EXPLORE_INTERVAL == 0) {
+            return other;
+        }
+        return best;
+    }
+
+    synchronized void record(KillReport.Method method, long durationNanos) {
+        // the first run includes class loading and other one-time costs
+        if (this.used.add(method)) {
+            return;
+        }
+        Double cost = this.costs.get(method);
+        this.costs.put(method, cost == null ? durationNanos : (1 - ALPHA) * cost + ALPHA * durationNanos);
+    }
+}
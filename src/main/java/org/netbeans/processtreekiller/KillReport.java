@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of {@link ProcessTreeKiller#killAndReport(Process)} and the
+ * scanning kills taking a {@link ScanControl}: how the processes were found
+ * and killed and how long it took.
+ */
+public final class KillReport {
+
+    /**
+     * Method used to find and kill the tree.
+     */
+    public enum Method {
+        /**
+         * Platform specific kill without planning (winp on windows,
+         * {@link Process#destroy()} if the killer is disabled).
+         */
+        PLATFORM,
+        /**
+         * Tree built from a snapshot of all processes.
+         */
+        SCAN,
+        /**
+         * Tree built by walking /proc/&lt;pid&gt;/task/&lt;tid&gt;/children.
+         */
+        CHILDREN,
+        /**
+         * The tree had a cgroup of its own (holding nothing but the tree),
+         * it was killed through cgroup.kill. Only used with
+         * {@link KillStrategy#FREEZE}, cgroup.kill sends SIGKILL.
+         */
+        CGROUP
+    }
+
+    private final int pid;
+    private final Method method;
+    private final long durationNanos;
+    private final List<Integer> killedPids;
+    private final boolean complete;
+    private final long reclaimedBytes;
+
+    KillReport(int pid, Method method, long durationNanos) {
+        this(pid, method, durationNanos, pid > 0 ? Collections.singletonList(pid) : Collections.emptyList(), true);
+    }
+
+    KillReport(int pid, Method method, long durationNanos, List<Integer> killedPids, boolean complete) {
+        this(pid, method, durationNanos, killedPids, complete, 0);
+    }
+
+    KillReport(int pid, Method method, long durationNanos, List<Integer> killedPids, boolean complete, long reclaimedBytes) {
+        this.pid = pid;
+        this.method = method;
+        this.durationNanos = durationNanos;
+        this.killedPids = Collections.unmodifiableList(killedPids);
+        this.complete = complete;
+        this.reclaimedBytes = reclaimedBytes;
+    }
+
+    /**
+     * @return pid of the root of the killed tree or -1 if unknown
+     */
+    public int getPid() {
+        return this.pid;
+    }
+
+    public Method getMethod() {
+        return this.method;
+    }
+
+    public long getDurationNanos() {
+        return this.durationNanos;
+    }
+
+    /**
+     * @return pids of the killed processes, empty if not known: the whole
+     * tree for {@link ProcessTreeKiller#killAndReport(Process)}, the roots of
+     * the killed trees for the scanning kills
+     */
+    public List<Integer> getKilledPids() {
+        return this.killedPids;
+    }
+
+    /**
+     * @return false if the scan was stopped early by its {@link ScanControl},
+     * only the processes found up to that point were killed, or if the
+     * process passed to {@link ProcessTreeKiller#killAndReport(Process)}
+     * was already gone
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * @return resident memory (bytes) of killed processes, that was reaped
+     * through process_mrelease instead of waiting for their exit, 0 if none
+     */
+    public long getReclaimedBytes() {
+        return this.reclaimedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "KillReport{" + "pid=" + this.pid + ", method=" + this.method + ", durationNanos=" + this.durationNanos
+                + ", killedPids=" + this.killedPids + ", complete=" + this.complete + ", reclaimedBytes=" + this.reclaimedBytes + '}';
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.Locale;
+
+/**
+ * Strategy used to signal the processes of a tree on unix systems.
+ */
+public enum KillStrategy {
+    /**
+     * Signal every process of the tree individually (bottom-up).
+     */
+    PROCESS,
+    /**
+     * Send one {@code killpg} for each process group, that is completely
+     * contained in the tree, signal the remaining processes individually.
+     * Groups are only signalled if the snapshot holds all processes (not with
+     * {@code cgroupScope}), else this behaves like {@link #PROCESS}.
+     */
+    PROCESS_GROUP,
+    /**
+     * Like {@link #PROCESS_GROUP}, but sweep all process groups of a session
+     * at once, if the whole session is contained in the tree.
+     */
+    SESSION,
+    /**
+     * Stop the tree with SIGSTOP and repeatedly look for new children of the
+     * stopped processes until a pass finds nothing new, then SIGKILL all of
+     * them. Use for trees that fork faster than they can be killed.
+     */
+    FREEZE,
+    /**
+     * SIGKILL the processes of the tree ordered by resident set size, the
+     * largest first, to relieve memory pressure as early as possible. If
+     * {@code org.netbeans.processtreekiller.ProcessTreeKiller.memoryTarget}
+     * is set (bytes), killing stops as soon as the available memory reaches
+     * it (only supported on linux).
+     */
+    MEMORY;
+
+    static KillStrategy parse(String value, KillStrategy fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException ex) {
+            return fallback;
+        }
+    }
+}
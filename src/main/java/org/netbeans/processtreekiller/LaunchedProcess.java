@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * A process started by {@link ProcessLauncher}.
+ */
+public final class LaunchedProcess {
+
+    private final Process process;
+    private final String cookie;
+    private final int pid;
+    private final long startTime;
+    private final Map<Integer, Long> knownProcesses = new HashMap<>();
+
+    LaunchedProcess(Process process, String cookie, int pid, long startTime) {
+        this.process = process;
+        this.cookie = cookie;
+        this.pid = pid;
+        this.startTime = startTime;
+        if (pid > 0) {
+            this.knownProcesses.put(pid, startTime);
+        }
+    }
+
+    public Process getProcess() {
+        return this.process;
+    }
+
+    public String getCookie() {
+        return this.cookie;
+    }
+
+    /**
+     * @return pid of the launched process or -1 if it could not be determined
+     */
+    public int getPid() {
+        return this.pid;
+    }
+
+    /**
+     * @return start time of the launched process in milliseconds since the
+     * epoch or -1 if unknown
+     */
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    /**
+     * @return the environment variables identifying the process tree, usable
+     * with {@link ProcessTreeKiller#kill(java.util.Map)}
+     */
+    public Map<String, String> getEnvironment() {
+        return Collections.singletonMap(ProcessLauncher.COOKIE, this.cookie);
+    }
+
+    /**
+     * @return pid to start time of all processes known to belong to this tree
+     */
+    public synchronized Map<Integer, Long> getKnownProcesses() {
+        return new HashMap<>(this.knownProcesses);
+    }
+
+    /**
+     * Kill the process and the descendants known to the registry.
+     */
+    public void kill() {
+        ProcessRegistry.getDefault().unregister(this);
+        ProcessTreeKiller killer = ProcessTreeKiller.get();
+        if (killer instanceof Unix && this.pid > 0) {
+            ((Unix<?>) killer).kill(this);
+        } else {
+            killer.kill(this.process, this.getEnvironment());
+        }
+    }
+
+    /**
+     * Update the known processes from a snapshot: processes that are gone are
+     * dropped, new descendants of the remaining processes are added.
+     *
+     * @return true if processes of this tree are still alive
+     */
+    synchronized <P extends UnixProcess<P>> boolean update(UnixSystem<P> system, IntFunction<List<P>> children) {
+        Map<Integer, Long> alive = new HashMap<>();
+        for (Iterator<Map.Entry<Integer, Long>> it = this.knownProcesses.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Integer, Long> e = it.next();
+            P p = system.get(e.getKey());
+            if (p == null || p.getStartTime() != e.getValue()) {
+                it.remove();
+            } else {
+                alive.put(e.getKey(), e.getValue());
+            }
+        }
+        while (!alive.isEmpty()) {
+            Map<Integer, Long> added = new HashMap<>();
+            for (Map.Entry<Integer, Long> e : alive.entrySet()) {
+                for (P child : children.apply(e.getKey())) {
+                    // a child can't be older than its parent, else the pid was reused
+                    if (child.getStartTime() >= e.getValue() && !this.knownProcesses.containsKey(child.getPid())) {
+                        this.knownProcesses.put(child.getPid(), child.getStartTime());
+                        added.put(child.getPid(), child.getStartTime());
+                    }
+                }
+            }
+            alive = added;
+        }
+        return !this.knownProcesses.isEmpty() || this.process.isAlive();
+    }
+
+    @Override
+    public String toString() {
+        return "LaunchedProcess{" + "cookie=" + this.cookie + ", pid=" + this.pid + '}';
+    }
+}
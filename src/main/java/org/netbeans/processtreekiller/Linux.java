@@ -24,14 +24,566 @@
  */
 package org.netbeans.processtreekiller;
 
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
 final class Linux extends Unix<LinuxSystem> {
 
+    private static final Logger LOGGER = Logger.getLogger(Linux.class.getName());
+
+    /**
+     * Build snapshots as compact pid/ppid table, processes are only read when
+     * they are accessed.
+     */
+    private static final boolean COMPACT_SNAPSHOT = Boolean.getBoolean(ProcessTreeKiller.class.getName() + ".compactSnapshot");
+    /**
+     * Only scan the processes in the cgroup (subtree) of the JVM.
+     */
+    private static final boolean CGROUP_SCOPE = Boolean.getBoolean(ProcessTreeKiller.class.getName() + ".cgroupScope");
+    private static final Path CGROUP_ROOT = Paths.get(System.getProperty(ProcessTreeKiller.class.getName() + ".cgroupRoot", CGroups.DEFAULT_ROOT.toString()));
+    /**
+     * /proc/&lt;pid&gt;/task/&lt;tid&gt;/children is only present if the kernel
+     * is build with CONFIG_PROC_CHILDREN.
+     */
+    static final boolean CHILDREN_FILES = new File("/proc/1/task/1/children").exists();
+
+    private static final KillPlanner PLANNER = new KillPlanner();
+    private static final long EXIT_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(500);
+    /**
+     * Reap the memory of processes SIGKILLed by {@link KillStrategy#MEMORY}
+     * and {@link KillStrategy#FREEZE} through a pidfd and process_mrelease
+     * (linux 5.15+).
+     */
+    private static final boolean RELEASE_MEMORY = Boolean.getBoolean(ProcessTreeKiller.class.getName() + ".releaseMemory");
+    private static volatile boolean pidfdSupported = true;
+    private static volatile boolean mreleaseSupported = true;
+    private static final long SYS_IOPRIO_SET = getIoprioSetSyscall();
+    private static final int IOPRIO_WHO_PROCESS = 1;
+    private static final int IOPRIO_CLASS_SHIFT = 13;
+
     Linux() {
         super();
     }
 
+    @Override
+    public void kill(Process proc, Map<String, String> modelEnvVars) {
+        if (proc != null && modelEnvVars == null) {
+            this.killAndReport(proc);
+        } else {
+            super.kill(proc, modelEnvVars);
+        }
+    }
+
+    /**
+     * The children walk is only offered to the planner for
+     * {@link KillStrategy#PROCESS}, the other strategies need a full
+     * snapshot. cgroup.kill sends SIGKILL, so it is only offered for
+     * {@link KillStrategy#FREEZE} and only if the cgroup holds nothing but
+     * the tree.
+     */
+    @Override
+    public KillReport killAndReport(Process proc) {
+        long start = System.nanoTime();
+        int pid = getPid(proc);
+        Set<KillReport.Method> capable = EnumSet.of(KillReport.Method.SCAN);
+        if (strategy == KillStrategy.PROCESS && CHILDREN_FILES) {
+            capable.add(KillReport.Method.CHILDREN);
+        }
+        Set<Integer> tree = null;
+        Path cgroup = null;
+        if (strategy == KillStrategy.FREEZE) {
+            tree = this.getDescendantPids(Collections.singleton(pid));
+            tree.add(pid);
+            cgroup = getTreeCgroup(pid, tree);
+            if (cgroup != null) {
+                capable.add(KillReport.Method.CGROUP);
+            }
+        }
+        KillReport.Method method = PLANNER.choose(capable);
+        if (method == KillReport.Method.CGROUP && !killCgroup(cgroup)) {
+            method = KillReport.Method.SCAN;
+        }
+        List<Integer> killed = Collections.emptyList();
+        long reclaimed = 0;
+        if (method == KillReport.Method.CGROUP) {
+            killed = new ArrayList<>(tree);
+        } else {
+            LinuxSystem system;
+            if (method == KillReport.Method.CHILDREN) {
+                tree = this.getDescendantPids(Collections.singleton(pid));
+                tree.add(pid);
+                system = this.createSystem(toArray(tree));
+            } else {
+                system = this.snapshot();
+                if (tree == null) {
+                    tree = super.getDescendantPids(Collections.singleton(pid));
+                    tree.add(pid);
+                }
+            }
+            LinuxProcess p = system.get(pid);
+            if (p != null) {
+                killed = new ArrayList<>(tree);
+                reclaimed = this.killTree(p);
+            }
+        }
+        proc.destroy();
+        long duration = System.nanoTime() - start;
+        PLANNER.record(method, duration);
+        return new KillReport(pid, method, duration, killed, !killed.isEmpty(), reclaimed);
+    }
+
+    /**
+     * @return the cgroup v2 directory of {@code pid}, if the process was
+     * placed into a cgroup, that does not contain the JVM, else null
+     */
+    private static Path getDedicatedCgroup(int pid) {
+        try {
+            Path own = CGroups.getUnifiedDirectory(CGROUP_ROOT, CGroups.SELF_CGROUP);
+            Path cgroup = CGroups.getUnifiedDirectory(CGROUP_ROOT, Paths.get("/proc/" + pid + "/cgroup"));
+            if (own == null || cgroup == null || own.startsWith(cgroup)) {
+                return null;
+            }
+            return cgroup;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the dedicated cgroup of {@code pid}, if the processes in it
+     * (and the cgroups below it) are exactly {@code tree}, else null. Whole
+     * cgroup operations then affect the tree and nothing else.
+     */
+    private static Path getTreeCgroup(int pid, Set<Integer> tree) {
+        Path cgroup = getDedicatedCgroup(pid);
+        if (cgroup == null) {
+            return null;
+        }
+        try {
+            int[] members = CGroups.listProcesses(cgroup);
+            if (members.length != tree.size()) {
+                return null;
+            }
+            for (int member : members) {
+                if (!tree.contains(member)) {
+                    return null;
+                }
+            }
+            return cgroup;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static boolean killCgroup(Path cgroup) {
+        try {
+            return CGroups.kill(cgroup);
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, "Failed to kill cgroup " + cgroup, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Trees having a cgroup of their own are paused through the cgroup
+     * freezer, it also catches processes, that fork while the tree is
+     * paused. The freezer stops every member of the cgroup, so it is only
+     * used if the cgroup holds exactly the tree.
+     */
+    @Override
+    public int suspend(Process proc) {
+        int pid = getPid(proc);
+        Set<Integer> tree = this.getDescendantPids(Collections.singleton(pid));
+        tree.add(pid);
+        Path cgroup = getTreeCgroup(pid, tree);
+        if (cgroup != null) {
+            try {
+                if (CGroups.freeze(cgroup, true)) {
+                    return tree.size();
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.FINE, "Failed to freeze cgroup " + cgroup, ex);
+            }
+        }
+        return super.suspend(proc);
+    }
+
+    @Override
+    public int resume(Process proc) {
+        int pid = getPid(proc);
+        Set<Integer> tree = this.getDescendantPids(Collections.singleton(pid));
+        tree.add(pid);
+        Path cgroup = getTreeCgroup(pid, tree);
+        if (cgroup != null) {
+            try {
+                CGroups.freeze(cgroup, false);
+            } catch (IOException ex) {
+                LOGGER.log(Level.FINE, "Failed to thaw cgroup " + cgroup, ex);
+            }
+        }
+        // the tree might have been stopped with SIGSTOP nevertheless
+        return super.resume(proc);
+    }
+
+    @Override
+    public int setIoPriority(Process proc, IoClass ioClass, int level) {
+        if (level < 0 || level > 7) {
+            throw new IllegalArgumentException("Level must be between 0 and 7: " + level);
+        }
+        if (SYS_IOPRIO_SET < 0) {
+            LOGGER.log(Level.INFO, "ioprio_set not known for {0}", Platform.ARCH);
+            return 0;
+        }
+        NativeLong number = new NativeLong(SYS_IOPRIO_SET);
+        int ioprio = ioClass.getValue() << IOPRIO_CLASS_SHIFT | (ioClass == IoClass.IDLE ? 0 : level);
+        return this.forEachInTree(getPid(proc), pid -> this.forEachThread(pid,
+                tid -> UnixCLibrary.LIBC.syscall(number, IOPRIO_WHO_PROCESS, tid, ioprio).intValue() == 0));
+    }
+
+    @Override
+    public int setAffinity(Process proc, BitSet cpus) {
+        if (cpus.isEmpty()) {
+            throw new IllegalArgumentException("No CPU selected");
+        }
+        long[] words = cpus.toLongArray();
+        NativeLong size = new NativeLong(words.length * 8L);
+        return this.forEachInTree(getPid(proc), pid -> this.forEachThread(pid,
+                tid -> UnixCLibrary.LIBC.sched_setaffinity(tid, size, words) == 0));
+    }
+
+    /**
+     * Nice value, ioprio and affinity are attributes of the thread, the
+     * threads are listed in /proc/&lt;pid&gt;/task.
+     */
+    @Override
+    protected boolean forEachThread(int pid, IntPredicate action) {
+        String[] tids = new File("/proc/" + pid + "/task").list();
+        if (tids == null) {
+            return action.test(pid);
+        }
+        boolean result = false;
+        for (String tid : tids) {
+            try {
+                result |= action.test(Integer.parseInt(tid));
+            } catch (NumberFormatException ex) {
+                // not a thread
+            }
+        }
+        return result;
+    }
+
+    /**
+     * ioprio_set predates the unified syscall table, so the number depends
+     * on the architecture.
+     *
+     * @return syscall number or -1 if unknown
+     */
+    private static long getIoprioSetSyscall() {
+        switch (Platform.ARCH) {
+            case "x86-64":
+                return 251;
+            case "x86":
+                return 289;
+            case "aarch64":
+            case "riscv64":
+                return 30;
+            case "arm":
+                return 314;
+            case "ppc":
+            case "ppc64":
+            case "ppc64le":
+                return 273;
+            case "s390x":
+                return 282;
+            default:
+                return -1;
+        }
+    }
+
     @Override
     protected LinuxSystem createSystem() {
+        if (CGROUP_SCOPE) {
+            int[] pids = this.listCgroupProcesses();
+            if (pids != null) {
+                return COMPACT_SNAPSHOT
+                        ? new LinuxSystem(LinuxSystem.readProcessTable(pids, pids.length), true)
+                        : new LinuxSystem(pids);
+            }
+        }
+        if (COMPACT_SNAPSHOT) {
+            return new LinuxSystem(LinuxSystem.readProcessTable());
+        }
         return new LinuxSystem();
     }
+
+    @Override
+    ProcessTable readProcessTable() {
+        if (CGROUP_SCOPE) {
+            int[] pids = this.listCgroupProcesses();
+            if (pids != null) {
+                return LinuxSystem.readProcessTable(pids, pids.length);
+            }
+        }
+        return LinuxSystem.readProcessTable();
+    }
+
+    /**
+     * Every process is needed for scanning kills, so the compact table would
+     * only add work.
+     */
+    @Override
+    protected LinuxSystem createSystem(ScanControl control) {
+        if (CGROUP_SCOPE) {
+            int[] pids = this.listCgroupProcesses();
+            if (pids != null) {
+                return new LinuxSystem(pids, control);
+            }
+        }
+        return new LinuxSystem(control);
+    }
+
+    @Override
+    protected LinuxSystem createSystem(int[] pids) {
+        return new LinuxSystem(pids);
+    }
+
+    @Override
+    Stream<ProcessInfo> processes() {
+        return ProcfsUnixSystem.query(new LinuxSystem(new int[0]));
+    }
+
+    @Override
+    public List<ProcessInfo> findPortHolders(int port) {
+        LinuxSystem system = this.snapshot();
+        return toProcessInfos(system, LinuxHolderIndex.findPortHolders(system.getPids(), port));
+    }
+
+    @Override
+    public List<ProcessInfo> findFileHolders(Path path) {
+        LinuxSystem system = this.snapshot();
+        return toProcessInfos(system, LinuxHolderIndex.findFileHolders(system.getPids(), Collections.singleton(toRealPath(path))));
+    }
+
+    @Override
+    public KillReport killPortHolders(int port) {
+        long start = System.nanoTime();
+        LinuxSystem system = this.snapshot();
+        return this.killAll(system, LinuxHolderIndex.findPortHolders(system.getPids(), port), start);
+    }
+
+    @Override
+    public KillReport killFileHolders(Path path) {
+        long start = System.nanoTime();
+        LinuxSystem system = this.snapshot();
+        return this.killAll(system, LinuxHolderIndex.findFileHolders(system.getPids(), Collections.singleton(toRealPath(path))), start);
+    }
+
+    @Override
+    protected long getAvailableMemory() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/meminfo"), StandardCharsets.ISO_8859_1)) {
+                if (line.startsWith("MemAvailable:")) {
+                    // MemAvailable:    5626708 kB
+                    String value = line.substring(13).trim();
+                    return Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.FINE, "Failed to read /proc/meminfo", ex);
+        }
+        return -1;
+    }
+
+    /**
+     * The process is signalled through a pidfd opened before the kill (linux
+     * 5.3+), so that the signal, the release and a resume after a failed kill
+     * all reach the process whose RSS was read, even if the pid is reused.
+     */
+    @Override
+    protected long killAndRelease(int pid, boolean resume) {
+        if (!pidfdSupported) {
+            return super.killAndRelease(pid, resume);
+        }
+        boolean release = RELEASE_MEMORY && mreleaseSupported;
+        long rss = 0;
+        if (release) {
+            // the memory is gone once the process was killed, so read it first
+            LinuxProcess p = new LinuxSystem(new int[]{pid}).get(pid);
+            rss = p != null ? p.getRss() : 0;
+        }
+        int pidfd;
+        try {
+            pidfd = syscall(UnixCLibrary.SYS_PIDFD_OPEN, pid, 0);
+        } catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "libc not available, not using pidfds", e);
+            pidfdSupported = false;
+            return super.killAndRelease(pid, resume);
+        }
+        if (pidfd == -UnixCLibrary.ENOSYS) {
+            LOGGER.log(Level.INFO, "Kernel does not support pidfds, signalling pids");
+            pidfdSupported = false;
+            return super.killAndRelease(pid, resume);
+        }
+        if (pidfd < 0) {
+            // the process is gone
+            return -1;
+        }
+        try {
+            int result = syscall(UnixCLibrary.SYS_PIDFD_SEND_SIGNAL, pidfd, UnixCLibrary.SIGKILL, Pointer.NULL, 0);
+            if (result != 0) {
+                if (resume && result != -UnixCLibrary.ESRCH) {
+                    // still the stopped process, don't leave it stopped
+                    syscall(UnixCLibrary.SYS_PIDFD_SEND_SIGNAL, pidfd, UnixCLibrary.SIGCONT, Pointer.NULL, 0);
+                }
+                return -1;
+            }
+            if (!release) {
+                return 0;
+            }
+            result = syscall(UnixCLibrary.SYS_PROCESS_MRELEASE, pidfd, 0);
+            if (result == -UnixCLibrary.ENOSYS) {
+                LOGGER.log(Level.INFO, "Kernel does not support process_mrelease, not releasing memory of killed processes");
+                mreleaseSupported = false;
+            }
+            return result == 0 ? rss : 0;
+        } finally {
+            UnixCLibrary.LIBC.close(pidfd);
+        }
+    }
+
+    /**
+     * @return result of the syscall or the negated errno on failure. ESRCH
+     * (already reaped) and EINVAL (exit already passed the address space) are
+     * expected.
+     */
+    private static int syscall(long number, Object... args) {
+        int result = UnixCLibrary.LIBC.syscall(new NativeLong(number), args).intValue();
+        if (result < 0) {
+            int errno = Native.getLastError();
+            LOGGER.log(Level.FINE, "Syscall {0} failed: {1}", new Object[]{number, UnixCLibrary.LIBC.strerror(errno)});
+            return -errno;
+        }
+        return result;
+    }
+
+    /**
+     * The address space is released before the process becomes a zombie.
+     */
+    @Override
+    protected void awaitExit(int pid) {
+        long deadline = System.nanoTime() + EXIT_TIMEOUT;
+        while (System.nanoTime() - deadline < 0) {
+            LinuxProcess p = new LinuxSystem(new int[]{pid}).get(pid);
+            if (p == null || p.isZombie() || p.getState() == 'X') {
+                return;
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return pids in the cgroup subtree of the JVM or null if it can't be
+     * determined
+     */
+    private int[] listCgroupProcesses() {
+        try {
+            Path directory = CGroups.getCgroupDirectory(CGROUP_ROOT, CGroups.SELF_CGROUP);
+            if (directory != null) {
+                return CGroups.listProcesses(directory);
+            }
+            LOGGER.log(Level.INFO, "Failed to determine cgroup below {0}, scanning all processes", CGROUP_ROOT);
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.INFO, "Failed to list cgroup processes, scanning all processes", ex);
+        }
+        return null;
+    }
+
+    @Override
+    protected Set<Integer> getChildPids(Collection<Integer> pids) {
+        if (!CHILDREN_FILES) {
+            return super.getChildPids(pids);
+        }
+        Set<Integer> result = new HashSet<>();
+        for (Integer pid : pids) {
+            readChildren(pid, result);
+        }
+        return result;
+    }
+
+    /**
+     * Without children files the descendants are taken from a compact
+     * pid/ppid table instead of a full snapshot.
+     */
+    @Override
+    protected Set<Integer> getDescendantPids(Collection<Integer> roots) {
+        if (!CHILDREN_FILES) {
+            return LinuxSystem.readProcessTable().getDescendantPids(roots);
+        }
+        Set<Integer> result = new HashSet<>();
+        Deque<Integer> queue = new ArrayDeque<>(roots);
+        Set<Integer> children = new HashSet<>();
+        while (!queue.isEmpty()) {
+            children.clear();
+            readChildren(queue.poll(), children);
+            for (Integer child : children) {
+                if (result.add(child)) {
+                    queue.add(child);
+                }
+            }
+        }
+        result.removeAll(roots);
+        return result;
+    }
+
+    /**
+     * Read the children of all threads of process {@code pid}.
+     */
+    static void readChildren(int pid, Set<Integer> result) {
+        String[] tasks = new File("/proc/" + pid + "/task").list();
+        if (tasks == null) {
+            return;
+        }
+        for (String tid : tasks) {
+            byte[] children;
+            try {
+                children = LinuxSystem.readFile("/proc/" + pid + "/task/" + tid + "/children");
+            } catch (IOException ex) {
+                continue;
+            }
+            for (String child : new String(children, StandardCharsets.ISO_8859_1).trim().split(" ")) {
+                if (!child.isEmpty()) {
+                    result.add(Integer.valueOf(child));
+                }
+            }
+        }
+    }
 }
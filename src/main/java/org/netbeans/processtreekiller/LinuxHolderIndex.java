@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Finds the processes holding a TCP port or files below a path. The socket
+ * inodes of the ports are read once from /proc/net/tcp and /proc/net/tcp6,
+ * then the fd links of all processes are read in one pass and matched
+ * against the inodes and paths. Processes, whose fds can't be read (other
+ * users), are skipped.
+ */
+final class LinuxHolderIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(LinuxHolderIndex.class.getName());
+    private static final String SOCKET_PREFIX = "socket:[";
+
+    private final Set<Long> socketInodes = new HashSet<>();
+    private final Collection<Path> paths;
+
+    private LinuxHolderIndex(Collection<Path> paths) {
+        this.paths = paths;
+    }
+
+    /**
+     * @return pids of the processes, that have a TCP socket bound to local
+     * port {@code port}
+     */
+    static Set<Integer> findPortHolders(int[] pids, int port) {
+        LinuxHolderIndex index = new LinuxHolderIndex(new HashSet<>());
+        index.readSockets(Paths.get("/proc/net/tcp"), port);
+        index.readSockets(Paths.get("/proc/net/tcp6"), port);
+        if (index.socketInodes.isEmpty()) {
+            return new TreeSet<>();
+        }
+        return index.scan(pids);
+    }
+
+    /**
+     * @return pids of the processes, that have a file at or below one of
+     * {@code paths} open
+     */
+    static Set<Integer> findFileHolders(int[] pids, Collection<Path> paths) {
+        return new LinuxHolderIndex(paths).scan(pids);
+    }
+
+    private void readSockets(Path table, int port) {
+        try {
+            boolean header = true;
+            for (String line : Files.readAllLines(table, StandardCharsets.ISO_8859_1)) {
+                if (header) {
+                    header = false;
+                    continue;
+                }
+                // sl local_address rem_address st tx_queue:rx_queue tr:tm->when retrnsmt uid timeout inode
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length < 10) {
+                    continue;
+                }
+                int colon = fields[1].lastIndexOf(':');
+                try {
+                    if (colon < 0 || Integer.parseInt(fields[1].substring(colon + 1), 16) != port) {
+                        continue;
+                    }
+                    long inode = Long.parseLong(fields[9]);
+                    if (inode != 0) {
+                        this.socketInodes.add(inode);
+                    }
+                } catch (NumberFormatException ex) {
+                    LOGGER.log(Level.FINE, "Skipping malformed line in " + table + ": " + line, ex);
+                }
+            }
+        } catch (IOException ex) {
+            // no IPv6
+            LOGGER.log(Level.FINE, "Failed to read " + table, ex);
+        }
+    }
+
+    private Set<Integer> scan(int[] pids) {
+        Set<Integer> result = new TreeSet<>();
+        for (int pid : pids) {
+            try (DirectoryStream<Path> fds = Files.newDirectoryStream(Paths.get("/proc", Integer.toString(pid), "fd"))) {
+                for (Path fd : fds) {
+                    if (this.matches(fd)) {
+                        result.add(pid);
+                        break;
+                    }
+                }
+            } catch (IOException | SecurityException ex) {
+                // process is gone or belongs to another user
+            }
+        }
+        return result;
+    }
+
+    private boolean matches(Path fd) {
+        String target;
+        try {
+            target = Files.readSymbolicLink(fd).toString();
+        } catch (IOException ex) {
+            return false;
+        }
+        if (target.startsWith(SOCKET_PREFIX)) {
+            if (this.socketInodes.isEmpty()) {
+                return false;
+            }
+            try {
+                return this.socketInodes.contains(Long.valueOf(target.substring(SOCKET_PREFIX.length(), target.length() - 1)));
+            } catch (NumberFormatException ex) {
+                return false;
+            }
+        }
+        if (this.paths.isEmpty() || !target.startsWith("/")) {
+            return false;
+        }
+        Path path = Paths.get(target.endsWith(" (deleted)") ? target.substring(0, target.length() - 10) : target);
+        for (Path prefix : this.paths) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
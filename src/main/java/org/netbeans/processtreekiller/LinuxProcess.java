@@ -24,41 +24,61 @@
  */
 package org.netbeans.processtreekiller;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 
 class LinuxProcess extends UnixProcess<LinuxProcess> {
 
     private final int pid;
-    private int ppid = -1;
+    private final int ppid;
+    private final int pgid;
+    private final int sid;
+    private final long startTime;
+    private final int uid;
+    private final char state;
+    private final long userTime;
+    private final long systemTime;
+    private final long rss;
+    private long readBytes = -1;
+    private long writeBytes = -1;
+    private boolean ioRead;
     private EnvVars envVars;
     private List<String> arguments;
 
-    /*
-     * WARNING - Removed try catching itself - possible behaviour change.
-     */
     LinuxProcess(LinuxSystem system, int pid) throws IOException {
         super(system);
         this.pid = pid;
-        try (BufferedReader r = new BufferedReader(new FileReader(this.getFile("status")))) {
-            String line;
-            while ((line = r.readLine()) != null) {
-                if (!(line = line.toLowerCase(Locale.ENGLISH)).startsWith("ppid:")) {
-                    continue;
-                }
-                this.ppid = Integer.parseInt(line.substring(5).trim());
-                break;
-            }
+        // Format: pid (comm) state ppid pgrp session ... utime stime ...
+        // starttime vsize rss ..., comm might contain spaces and parentheses,
+        // so parsing starts after the last ')'
+        String stat = new String(LinuxSystem.readFile("/proc/" + pid + "/stat"), StandardCharsets.ISO_8859_1);
+        int commEnd = stat.lastIndexOf(')');
+        if (commEnd < 0) {
+            throw new IOException("Failed to parse /proc/" + pid + "/stat");
         }
-        if (this.ppid == -1) {
-            throw new IOException("Failed to parse PPID from /proc/" + pid + "/status");
+        String[] fields = stat.substring(commEnd + 1).trim().split(" ");
+        if (fields.length < 22) {
+            throw new IOException("Failed to parse PPID from /proc/" + pid + "/stat");
         }
+        try {
+            this.state = fields[0].charAt(0);
+            this.ppid = Integer.parseInt(fields[1]);
+            this.pgid = Integer.parseInt(fields[2]);
+            this.sid = Integer.parseInt(fields[3]);
+            this.userTime = LinuxSystem.ticksToMillis(Long.parseLong(fields[11]));
+            this.systemTime = LinuxSystem.ticksToMillis(Long.parseLong(fields[12]));
+            this.startTime = LinuxSystem.toEpochMillis(Long.parseLong(fields[19]));
+            this.rss = Long.parseLong(fields[21]) * LinuxSystem.PAGE_SIZE;
+        } catch (NumberFormatException ex) {
+            throw new IOException("Failed to parse /proc/" + pid + "/stat", ex);
+        }
+        // the owner of /proc/<pid> is the effective uid of the process
+        this.uid = (Integer) Files.getAttribute(this.getPath(""), "unix:uid");
     }
 
     @Override
@@ -71,6 +91,95 @@ class LinuxProcess extends UnixProcess<LinuxProcess> {
         return (LinuxProcess) this.system.get(this.ppid);
     }
 
+    @Override
+    public int getPpid() {
+        return this.ppid;
+    }
+
+    @Override
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    @Override
+    public int getUid() {
+        return this.uid;
+    }
+
+    @Override
+    public char getState() {
+        return this.state;
+    }
+
+    @Override
+    public long getUserTime() {
+        return this.userTime;
+    }
+
+    @Override
+    public long getSystemTime() {
+        return this.systemTime;
+    }
+
+    @Override
+    public long getRss() {
+        return this.rss;
+    }
+
+    @Override
+    public long getReadBytes() {
+        this.readIo();
+        return this.readBytes;
+    }
+
+    @Override
+    public long getWriteBytes() {
+        this.readIo();
+        return this.writeBytes;
+    }
+
+    /**
+     * /proc/&lt;pid&gt;/io is only readable for processes of the same user, so
+     * it is read on demand.
+     */
+    private synchronized void readIo() {
+        if (this.ioRead) {
+            return;
+        }
+        this.ioRead = true;
+        try {
+            for (String line : Files.readAllLines(this.getPath("io"), StandardCharsets.ISO_8859_1)) {
+                if (line.startsWith("read_bytes:")) {
+                    this.readBytes = Long.parseLong(line.substring(11).trim());
+                } else if (line.startsWith("write_bytes:")) {
+                    this.writeBytes = Long.parseLong(line.substring(12).trim());
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            // access denied or process gone
+        }
+    }
+
+    @Override
+    public int getPgid() {
+        return this.pgid;
+    }
+
+    @Override
+    public Path getWorkingDirectory() {
+        return this.readLink("cwd");
+    }
+
+    @Override
+    public Path getExecutable() {
+        return this.readLink("exe");
+    }
+
+    @Override
+    public int getSid() {
+        return this.sid;
+    }
+
     @Override
     public synchronized List<String> getArguments() {
         if (this.arguments != null) {
@@ -95,6 +204,15 @@ class LinuxProcess extends UnixProcess<LinuxProcess> {
         return this.arguments;
     }
 
+    @Override
+    public byte[] getRawArguments() {
+        try {
+            return Files.readAllBytes(this.getPath("cmdline"));
+        } catch (IOException ex) {
+            return new byte[0];
+        }
+    }
+
     @Override
     public synchronized EnvVars getEnvVars() {
         if (this.envVars != null) {
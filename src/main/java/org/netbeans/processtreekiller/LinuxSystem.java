@@ -24,13 +24,234 @@
  */
 package org.netbeans.processtreekiller;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 class LinuxSystem extends ProcfsUnixSystem<LinuxProcess> {
 
+    private static final Logger LOGGER = Logger.getLogger(LinuxSystem.class.getName());
+    private static final long BOOT_TIME_MILLIS = readBootTime();
+    private static final long CLOCK_TICKS = readClockTicks();
+    static final long PAGE_SIZE = readPageSize();
+    /**
+     * Fields of /proc/&lt;pid&gt;/stat read into the compact table, counted
+     * from the state: ppid, pgrp, session and starttime.
+     */
+    private static final int[] STAT_FIELDS = {1, 2, 3, 19};
+
     LinuxSystem() {
     }
 
+    LinuxSystem(int[] pids) {
+        super(pids);
+    }
+
+    LinuxSystem(ScanControl control) {
+        super(control);
+    }
+
+    LinuxSystem(int[] pids, ScanControl control) {
+        super(pids, control);
+    }
+
+    LinuxSystem(ProcessTable table) {
+        super(table);
+    }
+
+    LinuxSystem(ProcessTable table, boolean restricted) {
+        super(table, restricted);
+    }
+
+    /**
+     * Read the pid/ppid relation, the process groups, sessions and start
+     * times of all processes into a compact table. Only the beginning of
+     * /proc/&lt;pid&gt;/stat is read into a shared buffer and parsed without
+     * creating strings.
+     */
+    static ProcessTable readProcessTable() {
+        String[] entries = new File("/proc").list();
+        if (entries == null) {
+            LOGGER.info("No /proc");
+            return new ProcessTable(new int[0], new int[0], new int[0], new int[0], new long[0], 0);
+        }
+        int[] pids = new int[entries.length];
+        int count = 0;
+        for (String entry : entries) {
+            int pid = parseNumber(entry);
+            if (pid >= 0) {
+                pids[count++] = pid;
+            }
+        }
+        return readProcessTable(pids, count);
+    }
+
+    /**
+     * Like {@link #readProcessTable()}, but only for the first {@code count}
+     * entries of {@code pids}. The array is modified.
+     */
+    static ProcessTable readProcessTable(int[] pids, int count) {
+        Arrays.sort(pids, 0, count);
+        int[] ppids = new int[count];
+        int[] pgids = new int[count];
+        int[] sids = new int[count];
+        long[] startTimes = new long[count];
+        byte[] buffer = new byte[512];
+        long[] fields = new long[STAT_FIELDS.length];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (readStat(pids[i], buffer, fields)) {
+                pids[size] = pids[i];
+                ppids[size] = (int) fields[0];
+                pgids[size] = (int) fields[1];
+                sids[size] = (int) fields[2];
+                startTimes[size++] = toEpochMillis(fields[3]);
+            }
+        }
+        return new ProcessTable(pids, ppids, pgids, sids, startTimes, size);
+    }
+
+    /**
+     * Read the whole file. Unlike {@link Files#readAllBytes} this does not go
+     * through an interruptible channel, so it also works on interrupted
+     * threads (killing is commonly done right after an interrupt).
+     */
+    static byte[] readFile(String path) throws IOException {
+        try (FileInputStream in = new FileInputStream(path)) {
+            byte[] buffer = new byte[512];
+            int length = 0;
+            int n;
+            while ((n = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += n;
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            return Arrays.copyOf(buffer, length);
+        }
+    }
+
+    private static int parseNumber(String value) {
+        if (value.isEmpty() || value.length() > 9) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Read the {@link #STAT_FIELDS} of {@code pid} into {@code fields}.
+     *
+     * @return false if they could not be read
+     */
+    private static boolean readStat(int pid, byte[] buffer, long[] fields) {
+        int length = 0;
+        try (FileInputStream in = new FileInputStream("/proc/" + pid + "/stat")) {
+            int n;
+            while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += n;
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+        // Format: pid (comm) state ppid pgrp session ... starttime ..., comm
+        // is at most 16 bytes long, so the last ')' in the buffer terminates it
+        int pos = length - 1;
+        while (pos >= 0 && buffer[pos] != ')') {
+            pos--;
+        }
+        if (pos < 0) {
+            return false;
+        }
+        // field 0 is the state
+        int field = -1;
+        int next = 0;
+        while (next < fields.length) {
+            // skip to the start of the next field
+            while (pos < length && buffer[pos] != ' ') {
+                pos++;
+            }
+            if (++pos >= length) {
+                return false;
+            }
+            field++;
+            if (field == STAT_FIELDS[next]) {
+                long value = 0;
+                int start = pos;
+                for (; pos < length && buffer[pos] >= '0' && buffer[pos] <= '9'; pos++) {
+                    value = value * 10 + (buffer[pos] - '0');
+                }
+                if (pos == start || pos >= length) {
+                    return false;
+                }
+                fields[next++] = value;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Convert a value from /proc/&lt;pid&gt;/stat given in clock ticks since
+     * boot into milliseconds since the epoch.
+     */
+    static long toEpochMillis(long ticksSinceBoot) {
+        if (BOOT_TIME_MILLIS < 0) {
+            return -1;
+        }
+        return BOOT_TIME_MILLIS + ticksSinceBoot * 1000 / CLOCK_TICKS;
+    }
+
+    static long ticksToMillis(long ticks) {
+        return ticks * 1000 / CLOCK_TICKS;
+    }
+
+    private static long readBootTime() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/stat"), StandardCharsets.ISO_8859_1)) {
+                if (line.startsWith("btime ")) {
+                    return Long.parseLong(line.substring(6).trim()) * 1000;
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            LOGGER.log(Level.FINE, "Failed to read boot time from /proc/stat", ex);
+        }
+        return -1;
+    }
+
+    private static long readClockTicks() {
+        try {
+            long ticks = UnixCLibrary.LIBC.sysconf(UnixCLibrary._SC_CLK_TCK).longValue();
+            if (ticks > 0) {
+                return ticks;
+            }
+        } catch (LinkageError ex) {
+            LOGGER.log(Level.FINE, "Failed to query _SC_CLK_TCK, assuming 100", ex);
+        }
+        return 100;
+    }
+
+    private static long readPageSize() {
+        try {
+            return UnixCLibrary.LIBC.getpagesize();
+        } catch (LinkageError ex) {
+            LOGGER.log(Level.FINE, "Failed to query page size, assuming 4096", ex);
+        }
+        return 4096;
+    }
+
     @Override
     protected LinuxProcess createProcess(int pid) throws IOException {
         return new LinuxProcess(this, pid);
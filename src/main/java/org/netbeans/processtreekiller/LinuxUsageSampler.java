@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sums CPU time and RSS of process trees for {@link ProcessWatchdog}. The
+ * stat and children files are read into a shared buffer and parsed in place,
+ * no process objects are built. Each read still allocates its path and a
+ * stream. Without children files a compact pid/ppid table is read once per
+ * sampling round and shared by all trees.
+ */
+final class LinuxUsageSampler {
+
+    private byte[] buffer = new byte[1024];
+    private final long[] fields = new long[3];
+    private int[] stack = new int[64];
+    private int stackSize;
+    private ProcessTable table;
+
+    /**
+     * Start a sampling round.
+     */
+    void prepare() {
+        this.table = Linux.CHILDREN_FILES ? null : LinuxSystem.readProcessTable();
+    }
+
+    /**
+     * Replace the content of {@code usage} by the usage of the tree of
+     * {@code root}.
+     */
+    void sample(int root, TreeUsage usage) {
+        usage.reset();
+        this.stackSize = 0;
+        this.push(root);
+        while (this.stackSize > 0) {
+            int pid = this.stack[--this.stackSize];
+            if (!this.readStat(pid)) {
+                continue;
+            }
+            usage.add(this.fields[0], this.fields[1], this.fields[2]);
+            if (this.table == null) {
+                this.pushChildren(pid);
+            } else {
+                int row = this.table.indexOf(pid);
+                if (row >= 0) {
+                    for (int i = 0; i < this.table.getChildCount(row); i++) {
+                        this.push(this.table.getPid(this.table.getChild(row, i)));
+                    }
+                }
+            }
+        }
+    }
+
+    private void push(int pid) {
+        if (this.stackSize == this.stack.length) {
+            int[] grown = new int[this.stack.length * 2];
+            System.arraycopy(this.stack, 0, grown, 0, this.stackSize);
+            this.stack = grown;
+        }
+        this.stack[this.stackSize++] = pid;
+    }
+
+    /**
+     * Read the complete file into the buffer, growing it if needed (children
+     * files of tasks with many children exceed any fixed size).
+     *
+     * @return number of bytes read or -1 if the file can't be read
+     */
+    private int read(String path) {
+        try (FileInputStream in = new FileInputStream(path)) {
+            int length = 0;
+            int n;
+            while ((n = in.read(this.buffer, length, this.buffer.length - length)) > 0) {
+                length += n;
+                if (length == this.buffer.length) {
+                    this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+                }
+            }
+            return length;
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Read utime, stime (milliseconds) and rss (bytes) into {@link #fields}.
+     */
+    private boolean readStat(int pid) {
+        int length = this.read("/proc/" + pid + "/stat");
+        int pos = length - 1;
+        while (pos >= 0 && this.buffer[pos] != ')') {
+            pos--;
+        }
+        if (pos < 0) {
+            return false;
+        }
+        // fields after the comm: state is 0, utime 11, stime 12, rss 21
+        int field = -1;
+        long value = 0;
+        for (pos++; pos < length && field <= 21; pos++) {
+            byte b = this.buffer[pos];
+            if (b == ' ' || b == '\n') {
+                if (field == 11) {
+                    this.fields[0] = LinuxSystem.ticksToMillis(value);
+                } else if (field == 12) {
+                    this.fields[1] = LinuxSystem.ticksToMillis(value);
+                } else if (field == 21) {
+                    this.fields[2] = value * LinuxSystem.PAGE_SIZE;
+                    return true;
+                }
+                field++;
+                value = 0;
+            } else if (b >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+            }
+        }
+        return false;
+    }
+
+    private void pushChildren(int pid) {
+        String[] tasks = new File("/proc/" + pid + "/task").list();
+        if (tasks == null) {
+            return;
+        }
+        for (String tid : tasks) {
+            this.pushPids(this.read("/proc/" + pid + "/task/" + tid + "/children"));
+        }
+    }
+
+    /**
+     * Push the space separated pids in the first {@code length} bytes of the
+     * buffer.
+     */
+    private void pushPids(int length) {
+        int child = -1;
+        for (int i = 0; i < length; i++) {
+            byte b = this.buffer[i];
+            if (b >= '0' && b <= '9') {
+                child = (child < 0 ? 0 : child * 10) + (b - '0');
+            } else if (child >= 0) {
+                this.push(child);
+                child = -1;
+            }
+        }
+        if (child >= 0) {
+            this.push(child);
+        }
+    }
+}
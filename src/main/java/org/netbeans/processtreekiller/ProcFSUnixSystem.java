@@ -25,40 +25,142 @@
 package org.netbeans.processtreekiller;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
 import java.util.logging.Logger;
 
 abstract class ProcfsUnixSystem<P extends UnixProcess<P>> extends UnixSystem<P> {
 
     private static final Logger LOGGER = Logger.getLogger(ProcfsUnixSystem.class.getName());
 
-    @SuppressWarnings("OverridableMethodCallInConstructor")
+    /**
+     * Rows of the table, that don't describe the live process anymore.
+     */
+    private final Set<Integer> dropped = new HashSet<>();
+
     ProcfsUnixSystem() {
-        File[] localProcesses = new File("/proc").listFiles(new FileFilter() {
+        this(ScanControl.UNBOUNDED);
+    }
+
+    /**
+     * Scan all processes, stopping early (with a partial snapshot) if
+     * {@code control} requests it.
+     */
+    ProcfsUnixSystem(ScanControl control) {
+        this(listPids(), control, false);
+    }
+
+    ProcfsUnixSystem(ProcessTable table) {
+        this(table, false);
+    }
+
+    /**
+     * @param restricted true if the table does not list all processes
+     */
+    ProcfsUnixSystem(ProcessTable table, boolean restricted) {
+        super(table);
+        this.restricted = restricted;
+    }
+
+    ProcfsUnixSystem(int[] pids) {
+        this(pids, ScanControl.UNBOUNDED);
+    }
+
+    ProcfsUnixSystem(int[] pids, ScanControl control) {
+        this(pids, control, true);
+    }
 
-            @Override
-            public boolean accept(File f) {
-                return f.isDirectory();
+    @SuppressWarnings("OverridableMethodCallInConstructor")
+    private ProcfsUnixSystem(int[] pids, ScanControl control, boolean restricted) {
+        this.restricted = restricted;
+        for (int pid : pids) {
+            if (control.isStopped()) {
+                this.complete = false;
+                break;
+            }
+            try {
+                this.processes.put(pid, this.createProcess(pid));
+            } catch (IOException e) {
+                // process is gone
             }
-        });
-        if (localProcesses == null) {
+        }
+    }
+
+    private static int[] listPids() {
+        // the numeric entries of /proc are always directories, so there is
+        // no need to stat them
+        String[] entries = new File("/proc").list();
+        if (entries == null) {
             LOGGER.info("No /proc");
-            return;
+            return new int[0];
         }
-        for (File p : localProcesses) {
-            int pid;
-            try {
-                pid = Integer.parseInt(p.getName());
-            } catch (NumberFormatException e) {
-                continue;
+        int[] pids = new int[entries.length];
+        int count = 0;
+        for (String entry : entries) {
+            Integer pid = parsePid(entry);
+            if (pid != null) {
+                pids[count++] = pid;
             }
+        }
+        return Arrays.copyOf(pids, count);
+    }
+
+    /**
+     * Lazily query the processes: the pids are taken from a listing of /proc,
+     * the process data is only read, when an attribute of the result is
+     * accessed.
+     */
+    static Stream<ProcessInfo> query(ProcfsUnixSystem<?> system) {
+        String[] entries = new File("/proc").list();
+        if (entries == null) {
+            return Stream.empty();
+        }
+        return Arrays.stream(entries)
+                .map(ProcfsUnixSystem::parsePid)
+                .filter(Objects::nonNull)
+                .map(pid -> new UnixProcessInfo(pid, system::load));
+    }
+
+    private static Integer parsePid(String name) {
+        try {
+            return Integer.valueOf(name);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the process from this snapshot, reading it if it is not yet
+     * present, or null if it does not exist. A process, whose start time
+     * differs from the row in the {@link ProcessTable}, is not the process
+     * recorded there (the pid was reused), its row is dropped. A process,
+     * that was reparented since, is kept in the tree of its former parent
+     * and only its row is updated.
+     */
+    @Override
+    synchronized P load(int pid) {
+        P p = this.processes.get(pid);
+        if (p == null && !this.dropped.contains(pid)) {
             try {
-                this.processes.put(pid, this.createProcess(pid));
+                p = this.createProcess(pid);
+                int row = this.table == null ? -1 : this.table.indexOf(pid);
+                if (row >= 0 && p.getStartTime() != this.table.getStartTime(row)) {
+                    this.dropped.add(pid);
+                    return null;
+                }
+                if (row >= 0 && p.getPpid() != this.table.getPpid(row)) {
+                    this.table.setPpid(row, p.getPpid());
+                }
+                this.processes.put(pid, p);
             } catch (IOException e) {
-                // empty catch block
+                // process is gone
             }
         }
+        return p;
     }
 
     protected abstract P createProcess(int var1) throws IOException;
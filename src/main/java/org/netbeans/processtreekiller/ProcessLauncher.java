@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Start processes through the library, so that their trees can later be
+ * killed without scanning the environments of all processes on the host.
+ *
+ * <p>Every launched process gets a unique cookie injected into its
+ * environment (variable {@link #COOKIE}). Its pid and start time are recorded
+ * and a background sweep keeps track of the descendants.</p>
+ */
+public final class ProcessLauncher {
+
+    public static final String COOKIE = "PROCESSTREEKILLER_COOKIE";
+
+    private ProcessLauncher() {
+    }
+
+    /**
+     * Start the process described by {@code builder} and register it. The
+     * environment of {@code builder} is left unmodified.
+     */
+    public static LaunchedProcess start(ProcessBuilder builder) throws IOException {
+        String cookie = UUID.randomUUID().toString();
+        Map<String, String> environment = builder.environment();
+        String previous = environment.put(COOKIE, cookie);
+        Process process;
+        try {
+            process = builder.start();
+        } finally {
+            if (previous == null) {
+                environment.remove(COOKIE);
+            } else {
+                environment.put(COOKIE, previous);
+            }
+        }
+        int pid = -1;
+        long startTime = -1;
+        ProcessTreeKiller killer = ProcessTreeKiller.get();
+        if (killer instanceof Unix) {
+            UnixProcess<?> p = ((Unix<?>) killer).findChild(COOKIE, cookie);
+            if (p != null) {
+                pid = p.getPid();
+                startTime = p.getStartTime();
+            }
+        }
+        LaunchedProcess launched = new LaunchedProcess(process, cookie, pid, startTime);
+        ProcessRegistry.getDefault().register(launched);
+        return launched;
+    }
+
+    /**
+     * @return the registered process started with {@code cookie} or null
+     */
+    public static LaunchedProcess find(String cookie) {
+        return ProcessRegistry.getDefault().get(cookie);
+    }
+
+    /**
+     * @return all processes, that were launched and not yet killed or found
+     * to be dead with all their descendants
+     */
+    public static Collection<LaunchedProcess> getLaunchedProcesses() {
+        return ProcessRegistry.getDefault().getAll();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Query the processes of the host through the current backend.
+ *
+ * <p>The result is lazy: only the process ids are enumerated up front, other
+ * attributes are read when they are accessed. Short-circuiting operations
+ * like {@code findFirst} or {@code anyMatch} therefore only pay for the
+ * processes they actually inspect:</p>
+ *
+ * <pre>
+ * Optional&lt;ProcessInfo&gt; server = ProcessQuery.stream()
+ *     .filter(p -&gt; p.getArguments().map(a -&gt; a.contains("-Dserver")).orElse(false))
+ *     .findFirst();
+ * </pre>
+ */
+public final class ProcessQuery {
+
+    private ProcessQuery() {
+    }
+
+    public static Stream<ProcessInfo> stream() {
+        return ProcessTreeKiller.get().processes();
+    }
+
+    public static Iterator<ProcessInfo> iterator() {
+        return stream().iterator();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of the processes started by {@link ProcessLauncher}. A background
+ * sweep records the descendants of the registered processes, so that they can
+ * be killed even after they were reparented. The sweep only reads the known
+ * processes and their descendants, found through the backend's pid/ppid walk
+ * (children files on linux), not the whole process table.
+ */
+final class ProcessRegistry {
+
+    private static final Logger LOGGER = Logger.getLogger(ProcessRegistry.class.getName());
+    private static final long SWEEP_INTERVAL = Long.getLong(ProcessLauncher.class.getName() + ".sweepInterval", 1000);
+    private static final boolean KILL_ON_SHUTDOWN = Boolean.getBoolean(ProcessTreeKiller.class.getName() + ".killOnShutdown");
+    private static final long SHUTDOWN_TIMEOUT = Long.getLong(ProcessTreeKiller.class.getName() + ".shutdownTimeout", 5000);
+    private static final String ENVIRONMENT_PASS = "environment pass";
+    private static final ProcessRegistry DEFAULT = new ProcessRegistry();
+
+    private final Map<String, LaunchedProcess> launched = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sweeper;
+    private Thread shutdownHook;
+
+    private ProcessRegistry() {
+    }
+
+    static ProcessRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    void register(LaunchedProcess process) {
+        this.launched.put(process.getCookie(), process);
+        this.startSweeper();
+        if (KILL_ON_SHUTDOWN) {
+            this.installShutdownHook();
+        }
+    }
+
+    void unregister(LaunchedProcess process) {
+        this.launched.remove(process.getCookie(), process);
+    }
+
+    LaunchedProcess get(String cookie) {
+        return this.launched.get(cookie);
+    }
+
+    Collection<LaunchedProcess> getAll() {
+        return new ArrayList<>(this.launched.values());
+    }
+
+    synchronized void installShutdownHook() {
+        if (this.shutdownHook != null) {
+            return;
+        }
+        this.shutdownHook = new Thread(() -> this.killAll(SHUTDOWN_TIMEOUT), "ProcessTreeKiller shutdown");
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    /**
+     * Kill all registered process trees in parallel. On unix the trees are
+     * updated from one shared snapshot before killing, the same snapshot is
+     * used by a single environment pass for all cookies. The snapshot is
+     * taken on the executor, so it counts against {@code timeout}.
+     *
+     * @return true if all trees were killed within {@code timeout}
+     * milliseconds
+     */
+    boolean killAll(long timeout) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        ProcessTreeKiller killer = ProcessTreeKiller.get();
+        List<LaunchedProcess> processes = new ArrayList<>(this.launched.values());
+        this.launched.clear();
+        if (processes.isEmpty()) {
+            return true;
+        }
+        // the running tasks, reported if they miss the deadline
+        Set<Object> pending = ConcurrentHashMap.newKeySet();
+        pending.addAll(processes);
+        pending.add(ENVIRONMENT_PASS);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(processes.size() + 2, 2 * Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "ProcessTreeKiller shutdown kill");
+            t.setDaemon(true);
+            return t;
+        });
+        // submitted first, so it is running before any task waits for it
+        CompletableFuture<UnixSystem<?>> snapshot = CompletableFuture.supplyAsync(() -> {
+            if (!(killer instanceof Unix)) {
+                return null;
+            }
+            try {
+                UnixSystem<?> system = ((Unix<?>) killer).createSystem();
+                this.sweep(system, new ArrayList<>(processes));
+                return system;
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.INFO, "Failed to update process registry", ex);
+                return null;
+            }
+        }, executor);
+        // catches processes, that escaped the tree before the first sweep
+        List<Map<String, String>> models = new ArrayList<>();
+        for (LaunchedProcess process : processes) {
+            models.add(process.getEnvironment());
+        }
+        executor.execute(() -> {
+            try {
+                UnixSystem<?> shared = snapshot.join();
+                if (shared != null) {
+                    ((Unix<?>) killer).kill(models, shared);
+                } else {
+                    killer.kill(models);
+                }
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.INFO, "Failed to kill by environment", ex);
+            }
+            pending.remove(ENVIRONMENT_PASS);
+        });
+        for (LaunchedProcess process : processes) {
+            executor.execute(() -> {
+                try {
+                    UnixSystem<?> shared = snapshot.join();
+                    if (shared != null && process.getPid() > 0) {
+                        ((Unix<?>) killer).kill(process, shared);
+                    } else {
+                        killer.kill(process.getProcess(), process.getEnvironment());
+                    }
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.INFO, "Failed to kill " + process, ex);
+                }
+                pending.remove(process);
+            });
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+        if (!pending.isEmpty()) {
+            LOGGER.log(Level.WARNING, "Could not kill {0} within {1} ms", new Object[]{pending, timeout});
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized void startSweeper() {
+        if (this.sweeper != null || SWEEP_INTERVAL <= 0) {
+            return;
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "ProcessTreeKiller registry sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL, SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+        this.sweeper = executor;
+    }
+
+    void sweep() {
+        if (this.launched.isEmpty()) {
+            return;
+        }
+        ProcessTreeKiller killer = ProcessTreeKiller.get();
+        if (!(killer instanceof Unix)) {
+            return;
+        }
+        try {
+            Unix<?> unix = (Unix<?>) killer;
+            Set<Integer> pids = new HashSet<>();
+            for (LaunchedProcess process : this.launched.values()) {
+                pids.addAll(process.getKnownProcesses().keySet());
+            }
+            pids.addAll(unix.getDescendantPids(pids));
+            this.sweep(unix.createSystem(Unix.toArray(pids)), this.launched.values());
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.INFO, "Failed to update process registry", ex);
+        }
+    }
+
+    /**
+     * Update {@code processes} from {@code system}, the processes, that are
+     * gone, are removed from {@code processes}.
+     */
+    private <P extends UnixProcess<P>> void sweep(UnixSystem<P> system, Collection<LaunchedProcess> processes) {
+        IntFunction<List<P>> children = system.index(UnixSystem.Attribute.PPID);
+        for (Iterator<LaunchedProcess> it = processes.iterator(); it.hasNext();) {
+            if (!it.next().update(system, children)) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The processes alive at one point in time, identified by pid and start
+ * time. Comparing a snapshot taken when a run session ends with one taken
+ * when it started reports the processes the session left behind:
+ *
+ * <pre>
+ * ProcessSnapshot before = ProcessSnapshot.capture();
+ * LaunchedProcess session = ProcessLauncher.start(builder);
+ * session.getProcess().waitFor();
+ * List&lt;ProcessInfo&gt; leaked = ProcessSnapshot.capture().getStartedSince(before, session.getCookie());
+ * </pre>
+ *
+ * Only pid, ppid and start time are recorded, no environment is read while
+ * capturing. Snapshots are only supported on unix systems, on other
+ * platforms they are empty.
+ */
+public final class ProcessSnapshot {
+
+    private final Unix<?> backend;
+    private final long time;
+    private final int[] pids;
+    private final int[] ppids;
+    private final long[] startTimes;
+
+    private ProcessSnapshot(Unix<?> backend, long time, int[] pids, int[] ppids, long[] startTimes) {
+        this.backend = backend;
+        this.time = time;
+        this.pids = pids;
+        this.ppids = ppids;
+        this.startTimes = startTimes;
+    }
+
+    public static ProcessSnapshot capture() {
+        long time = System.currentTimeMillis();
+        ProcessTreeKiller killer = ProcessTreeKiller.get();
+        if (!(killer instanceof Unix)) {
+            return new ProcessSnapshot(null, time, new int[0], new int[0], new long[0]);
+        }
+        Unix<?> backend = (Unix<?>) killer;
+        ProcessTable table = backend.readProcessTable();
+        int[] pids = new int[table.size()];
+        int[] ppids = new int[table.size()];
+        long[] startTimes = new long[table.size()];
+        for (int row = 0; row < pids.length; row++) {
+            pids[row] = table.getPid(row);
+            ppids[row] = table.getPpid(row);
+            startTimes[row] = table.getStartTime(row);
+        }
+        return new ProcessSnapshot(backend, time, pids, ppids, startTimes);
+    }
+
+    /**
+     * @return time the capture started in milliseconds since the epoch
+     */
+    public long getTime() {
+        return this.time;
+    }
+
+    public int size() {
+        return this.pids.length;
+    }
+
+    /**
+     * @return true if the process {@code pid} started at {@code startTime} is
+     * part of this snapshot
+     */
+    public boolean contains(int pid, long startTime) {
+        int row = Arrays.binarySearch(this.pids, pid);
+        return row >= 0 && this.startTimes[row] == startTime;
+    }
+
+    /**
+     * @return the processes of this snapshot, that are not part of
+     * {@code before} and were started after it was captured, ordered by pid
+     */
+    public List<ProcessInfo> getStartedSince(ProcessSnapshot before) {
+        List<ProcessInfo> result = new ArrayList<>();
+        for (int row : this.startedSince(before)) {
+            result.add(this.toProcessInfo(row));
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link #getStartedSince(ProcessSnapshot)}, narrowed to processes
+     * carrying the cookie of a {@link LaunchedProcess}. Only the environments
+     * of new processes, whose parent is not already known to match, are
+     * read.
+     */
+    public List<ProcessInfo> getStartedSince(ProcessSnapshot before, String cookie) {
+        int[] rows = this.startedSince(before);
+        if (rows.length == 0) {
+            return Collections.emptyList();
+        }
+        // parents are started before their children
+        Integer[] ordered = new Integer[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            ordered[i] = rows[i];
+        }
+        Arrays.sort(ordered, (r1, r2) -> Long.compare(this.startTimes[r1], this.startTimes[r2]));
+        // environments are read lazily, so only the roots of the new
+        // subtrees are checked
+        UnixSystem<?> system = this.backend.createSystem(this.toPids(rows));
+        Set<Integer> matched = new HashSet<>();
+        for (int row : ordered) {
+            if (matched.contains(this.ppids[row])) {
+                matched.add(this.pids[row]);
+                continue;
+            }
+            UnixProcess<?> p = system.get(this.pids[row]);
+            if (p != null && p.getStartTime() == this.startTimes[row]
+                    && cookie.equals(p.getEnvVars().get(ProcessLauncher.COOKIE))) {
+                matched.add(this.pids[row]);
+            }
+        }
+        List<ProcessInfo> result = new ArrayList<>();
+        for (int row : rows) {
+            if (matched.contains(this.pids[row])) {
+                result.add(this.toProcessInfo(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return rows of this snapshot, that are not part of {@code before} and
+     * were started after it
+     */
+    private int[] startedSince(ProcessSnapshot before) {
+        int[] result = new int[this.pids.length];
+        int count = 0;
+        for (int row = 0; row < this.pids.length; row++) {
+            // start times are only accurate to the clock tick, so processes
+            // started while before was captured are checked by their key
+            if (this.startTimes[row] >= before.time - 1000 && !before.contains(this.pids[row], this.startTimes[row])) {
+                result[count++] = row;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int[] toPids(int[] rows) {
+        int[] result = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = this.pids[rows[i]];
+        }
+        return result;
+    }
+
+    private ProcessInfo toProcessInfo(int row) {
+        int pid = this.pids[row];
+        long startTime = this.startTimes[row];
+        return new UnixProcessInfo(pid, p -> {
+            UnixProcess<?> process = this.backend.createSystem(new int[]{p}).get(p);
+            // the pid might have been reused since the snapshot was taken
+            return process != null && process.getStartTime() == startTime ? process : null;
+        });
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compact, columnar table of the pid/ppid relation of a snapshot, with the
+ * process group, session and start time of each process. The pids are held sorted, the
+ * children of each row are stored in compressed sparse row layout: the
+ * children of row {@code r} are the rows
+ * {@code children[childOffsets[r]] ... children[childOffsets[r + 1] - 1]}.
+ */
+final class ProcessTable {
+
+    private final int[] pids;
+    private final int[] ppids;
+    private final int[] pgids;
+    private final int[] sids;
+    private final long[] startTimes;
+    private final int[] childOffsets;
+    private final int[] children;
+
+    /**
+     * @param pids pids of the processes, sorted ascending
+     * @param ppids parent pids, ppids[i] is the parent of pids[i]
+     * @param pgids process groups, pgids[i] is the group of pids[i]
+     * @param sids sessions, sids[i] is the session of pids[i]
+     * @param startTimes start times (milliseconds since the epoch)
+     * @param size number of valid entries in the arrays
+     */
+    ProcessTable(int[] pids, int[] ppids, int[] pgids, int[] sids, long[] startTimes, int size) {
+        this.pids = Arrays.copyOf(pids, size);
+        this.ppids = Arrays.copyOf(ppids, size);
+        this.pgids = Arrays.copyOf(pgids, size);
+        this.sids = Arrays.copyOf(sids, size);
+        this.startTimes = Arrays.copyOf(startTimes, size);
+        this.childOffsets = new int[size + 1];
+        int[] parentRows = new int[size];
+        for (int i = 0; i < size; i++) {
+            parentRows[i] = this.indexOf(this.ppids[i]);
+            if (parentRows[i] >= 0) {
+                this.childOffsets[parentRows[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            this.childOffsets[i + 1] += this.childOffsets[i];
+        }
+        this.children = new int[this.childOffsets[size]];
+        int[] fill = Arrays.copyOf(this.childOffsets, size);
+        for (int i = 0; i < size; i++) {
+            if (parentRows[i] >= 0) {
+                this.children[fill[parentRows[i]]++] = i;
+            }
+        }
+    }
+
+    int size() {
+        return this.pids.length;
+    }
+
+    /**
+     * @return row of {@code pid} or a negative value if not present
+     */
+    int indexOf(int pid) {
+        return Arrays.binarySearch(this.pids, pid);
+    }
+
+    int getPid(int row) {
+        return this.pids[row];
+    }
+
+    synchronized int getPpid(int row) {
+        return this.ppids[row];
+    }
+
+    /**
+     * Record the live parent of a process, that was reparented after the
+     * table was read. The children layout keeps the original relation, so
+     * the process stays in the tree of its former parent.
+     */
+    synchronized void setPpid(int row, int ppid) {
+        this.ppids[row] = ppid;
+    }
+
+    long getStartTime(int row) {
+        return this.startTimes[row];
+    }
+
+    int getPgid(int row) {
+        return this.pgids[row];
+    }
+
+    int getSid(int row) {
+        return this.sids[row];
+    }
+
+    int getChildCount(int row) {
+        return this.childOffsets[row + 1] - this.childOffsets[row];
+    }
+
+    /**
+     * @return row of the {@code n}-th child of {@code row}
+     */
+    int getChild(int row, int n) {
+        return this.children[this.childOffsets[row] + n];
+    }
+
+    /**
+     * @return pids of the descendants of {@code roots} (not including the
+     * roots themselves)
+     */
+    Set<Integer> getDescendantPids(Collection<Integer> roots) {
+        Set<Integer> result = new HashSet<>();
+        Deque<Integer> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty()) {
+            int row = this.indexOf(queue.poll());
+            if (row < 0) {
+                continue;
+            }
+            for (int i = 0; i < this.getChildCount(row); i++) {
+                int child = this.getPid(this.getChild(row, i));
+                if (result.add(child)) {
+                    queue.add(child);
+                }
+            }
+        }
+        result.removeAll(roots);
+        return result;
+    }
+}
@@ -26,7 +26,14 @@
 package org.netbeans.processtreekiller;
 
 import com.sun.jna.Platform;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,6 +50,8 @@ public abstract class ProcessTreeKiller {
 
     private static final Logger LOGGER = Logger.getLogger(ProcessTreeKiller.class.getName());
     public static boolean enabled = !Boolean.getBoolean(ProcessTreeKiller.class.getName() + ".disable");
+    public static KillStrategy strategy = KillStrategy.parse(System.getProperty(ProcessTreeKiller.class.getName() + ".strategy"), KillStrategy.PROCESS);
+    private static volatile ProcessTreeKiller instance;
 
     public void kill(Process proc) {
         kill(proc, null);
@@ -50,14 +59,238 @@ public abstract class ProcessTreeKiller {
 
     public abstract void kill(Process var1, Map<String, String> var2);
 
+    /**
+     * Like {@link #kill(Process)}, but reports how the tree was killed. Some
+     * platforms choose between several methods, the cheapest method able to
+     * find the complete tree is used.
+     */
+    public KillReport killAndReport(Process proc) {
+        long start = System.nanoTime();
+        kill(proc);
+        return new KillReport(-1, KillReport.Method.PLATFORM, System.nanoTime() - start);
+    }
+
     public void kill(Map<String, String> modelEnvVars) {
         kill(null, modelEnvVars);
     }
 
+    /**
+     * Kill all processes (and their descendants), whose environment matches
+     * any of the supplied model maps. Backends read each process environment
+     * only once, independent of the number of models.
+     */
+    public void kill(Collection<Map<String, String>> modelEnvVars) {
+        for (Map<String, String> model : modelEnvVars) {
+            kill(model);
+        }
+    }
+
+    /**
+     * Kill all processes (and their descendants), whose command line matches
+     * {@code matcher}. The calling JVM is never killed, on unix systems its
+     * ancestors (the launching shell or IDE) aren't either.
+     */
+    public void kill(ArgvMatcher matcher) {
+    }
+
+    /**
+     * Sum the resource usage of {@code proc} and its descendants. The result
+     * is cheap enough to be sampled periodically.
+     *
+     * @return the usage or null if the platform does not support it
+     */
+    public TreeUsage getUsage(Process proc) {
+        return null;
+    }
+
+    /**
+     * Like {@link #kill(Map)}, but the scan is bounded by {@code control}.
+     * Platforms not supporting this kill without checking {@code control}.
+     */
+    public KillReport kill(Map<String, String> modelEnvVars, ScanControl control) {
+        long start = System.nanoTime();
+        kill(modelEnvVars);
+        return new KillReport(-1, KillReport.Method.PLATFORM, System.nanoTime() - start);
+    }
+
+    /**
+     * Like {@link #kill(ArgvMatcher)}, but the scan is bounded by
+     * {@code control}. Platforms not supporting this kill without checking
+     * {@code control}.
+     */
+    public KillReport kill(ArgvMatcher matcher, ScanControl control) {
+        long start = System.nanoTime();
+        kill(matcher);
+        return new KillReport(-1, KillReport.Method.PLATFORM, System.nanoTime() - start);
+    }
+
+    /**
+     * Kill all processes (and their descendants), whose working directory or
+     * executable is {@code roots} or below one of them. Neither the calling
+     * JVM nor its ancestors are killed. Process environments are not read.
+     *
+     * @return report of the killed trees, on platforms not supporting this an
+     * incomplete report without killed processes
+     */
+    public KillReport killUnder(Collection<Path> roots, ScanControl control) {
+        return new KillReport(-1, KillReport.Method.PLATFORM, 0, Collections.emptyList(), false);
+    }
+
+    public KillReport killUnder(Collection<Path> roots) {
+        return killUnder(roots, ScanControl.UNBOUNDED);
+    }
+
+    /**
+     * @return the processes having a TCP socket bound to the local
+     * {@code port}, empty on platforms not supporting this
+     */
+    public List<ProcessInfo> findPortHolders(int port) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return the processes having a file at or below {@code path} open,
+     * empty on platforms not supporting this
+     */
+    public List<ProcessInfo> findFileHolders(Path path) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Kill the trees of the processes returned by
+     * {@link #findPortHolders(int)}. Neither the calling JVM nor its
+     * ancestors are killed.
+     */
+    public KillReport killPortHolders(int port) {
+        return new KillReport(-1, KillReport.Method.PLATFORM, 0, Collections.emptyList(), false);
+    }
+
+    /**
+     * Kill the trees of the processes returned by
+     * {@link #findFileHolders(Path)}. Neither the calling JVM nor its
+     * ancestors are killed.
+     */
+    public KillReport killFileHolders(Path path) {
+        return new KillReport(-1, KillReport.Method.PLATFORM, 0, Collections.emptyList(), false);
+    }
+
+    /**
+     * Pause {@code proc} and its descendants without killing them, processes
+     * forked while the tree is paused are paused too. Linux uses the cgroup
+     * freezer, if the tree has a dedicated cgroup v2, else SIGSTOP.
+     *
+     * @return number of paused processes, 0 on platforms not supporting this
+     */
+    public int suspend(Process proc) {
+        return 0;
+    }
+
+    /**
+     * Continue a tree paused by {@link #suspend(Process)}.
+     *
+     * @return number of resumed processes, 0 on platforms not supporting this
+     */
+    public int resume(Process proc) {
+        return 0;
+    }
+
+    /**
+     * Set the nice value of {@code proc} and its descendants (all threads on
+     * linux). Lowering the nice value usually requires privileges.
+     *
+     * @return number of changed processes, 0 on platforms not supporting this
+     */
+    public int setPriority(Process proc, int nice) {
+        return 0;
+    }
+
+    /**
+     * Set the I/O priority of {@code proc} and its descendants.
+     *
+     * @param level 0 (highest) to 7 (lowest), ignored for {@link IoClass#IDLE}
+     * @return number of changed processes, 0 on platforms not supporting this
+     */
+    public int setIoPriority(Process proc, IoClass ioClass, int level) {
+        return 0;
+    }
+
+    /**
+     * Restrict {@code proc} and its descendants to the CPUs set in
+     * {@code cpus}. Threads started later inherit the affinity.
+     *
+     * @return number of changed processes, 0 on platforms not supporting this
+     */
+    public int setAffinity(Process proc, BitSet cpus) {
+        return 0;
+    }
+
+    /**
+     * Backend for {@link ProcessQuery}.
+     */
+    Stream<ProcessInfo> processes() {
+        return Stream.empty();
+    }
+
+    /**
+     * Backend specific initialisation for {@link #warmUp()}.
+     */
+    void prepare() {
+    }
+
+    /**
+     * Load the native libraries, initialise the backend and prime the
+     * process snapshot on a background thread, so that the first kill is not
+     * slowed down by one-time initialisation. Calling this is optional.
+     *
+     * @return future completed when the warm-up is done
+     */
+    public static CompletableFuture<Void> warmUp() {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread t = new Thread(() -> {
+            try {
+                get().prepare();
+                result.complete(null);
+            } catch (RuntimeException | Error e) {
+                LOGGER.log(Level.FINE, "Warm-up failed", e);
+                result.completeExceptionally(e);
+            }
+        }, "ProcessTreeKiller warm-up");
+        t.setDaemon(true);
+        t.start();
+        return result;
+    }
+
+    /**
+     * Kill all process trees started through {@link ProcessLauncher}, that
+     * are still alive when the JVM exits. The trees are killed in parallel,
+     * the total time is bounded by the system property
+     * {@code org.netbeans.processtreekiller.ProcessTreeKiller.shutdownTimeout}
+     * (milliseconds, default 5000). Setting
+     * {@code org.netbeans.processtreekiller.ProcessTreeKiller.killOnShutdown}
+     * to true installs the hook automatically.
+     */
+    public static void killOnShutdown() {
+        ProcessRegistry.getDefault().installShutdownHook();
+    }
+
     public static ProcessTreeKiller get() {
         if (!enabled) {
             return DEFAULT;
         }
+        ProcessTreeKiller result = instance;
+        if (result == null) {
+            synchronized (ProcessTreeKiller.class) {
+                result = instance;
+                if (result == null) {
+                    result = create();
+                    instance = result;
+                }
+            }
+        }
+        return enabled ? result : DEFAULT;
+    }
+
+    private static ProcessTreeKiller create() {
         try {
             if (Platform.isWindows()) {
                 return new Windows();
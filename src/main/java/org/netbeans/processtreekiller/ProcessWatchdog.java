@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Kills process trees, that exceed their {@link ResourceLimits}. The watched
+ * trees are sampled on a single background thread every
+ * {@code org.netbeans.processtreekiller.ProcessWatchdog.interval}
+ * milliseconds (default 1000). On linux the sampling only reads
+ * /proc/&lt;pid&gt;/stat of the tree members into a shared buffer.
+ */
+public final class ProcessWatchdog {
+
+    private static final Logger LOGGER = Logger.getLogger(ProcessWatchdog.class.getName());
+    private static final long INTERVAL = Long.getLong(ProcessWatchdog.class.getName() + ".interval", 1000);
+    private static final ProcessWatchdog DEFAULT = new ProcessWatchdog();
+
+    private final Map<Process, Watch> watches = new ConcurrentHashMap<>();
+    private final List<Watch> current = new ArrayList<>();
+    private LinuxUsageSampler sampler;
+    private ScheduledExecutorService executor;
+
+    private ProcessWatchdog() {
+    }
+
+    public static ProcessWatchdog getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Watch the tree of {@code proc}, until the process exits or
+     * {@link #unwatch(Process)} is called.
+     *
+     * @return future completed with the usage, that caused the tree to be
+     * killed, or with null if the tree is no longer watched for other
+     * reasons
+     */
+    public CompletableFuture<TreeUsage> watch(Process proc, ResourceLimits limits) {
+        Watch watch = new Watch(proc, limits);
+        Watch previous = this.watches.put(proc, watch);
+        if (previous != null) {
+            previous.result.complete(null);
+        }
+        this.start();
+        return watch.result;
+    }
+
+    public void unwatch(Process proc) {
+        Watch watch = this.watches.remove(proc);
+        if (watch != null) {
+            watch.result.complete(null);
+        }
+    }
+
+    private synchronized void start() {
+        if (this.executor != null) {
+            return;
+        }
+        ScheduledThreadPoolExecutor e = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "ProcessTreeKiller watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        e.scheduleWithFixedDelay(this::sample, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+        this.executor = e;
+    }
+
+    synchronized void sample() {
+        try {
+            this.current.clear();
+            for (Watch watch : this.watches.values()) {
+                if (watch.process.isAlive()) {
+                    this.current.add(watch);
+                } else {
+                    this.unwatch(watch.process);
+                }
+            }
+            if (this.current.isEmpty()) {
+                return;
+            }
+            ProcessTreeKiller killer = ProcessTreeKiller.get();
+            if (killer instanceof Linux) {
+                if (this.sampler == null) {
+                    this.sampler = new LinuxUsageSampler();
+                }
+                this.sampler.prepare();
+                for (Watch watch : this.current) {
+                    this.sampler.sample(Unix.getPid(watch.process), watch.usage);
+                    this.check(killer, watch, watch.usage);
+                }
+            } else {
+                for (Watch watch : this.current) {
+                    this.check(killer, watch, killer.getUsage(watch.process));
+                }
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.INFO, "Failed to sample watched processes", ex);
+        }
+    }
+
+    private void check(ProcessTreeKiller killer, Watch watch, TreeUsage usage) {
+        long wallClockTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - watch.started);
+        String exceeded = watch.limits.check(usage, wallClockTime);
+        if (exceeded == null || !this.watches.remove(watch.process, watch)) {
+            return;
+        }
+        LOGGER.log(Level.INFO, "Killing process tree, {0}: {1}", new Object[]{exceeded, usage});
+        killer.kill(watch.process);
+        watch.result.complete(usage);
+    }
+
+    private static final class Watch {
+
+        final Process process;
+        final ResourceLimits limits;
+        final long started = System.nanoTime();
+        final TreeUsage usage = new TreeUsage();
+        final CompletableFuture<TreeUsage> result = new CompletableFuture<>();
+
+        Watch(Process process, ResourceLimits limits) {
+            this.process = process;
+            this.limits = limits;
+        }
+    }
+}
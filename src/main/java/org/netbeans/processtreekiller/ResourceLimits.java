@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+/**
+ * Limits for a process tree watched by {@link ProcessWatchdog}. Limits not
+ * set are not enforced.
+ *
+ * <pre>
+ * ResourceLimits limits = ResourceLimits.builder()
+ *     .maxRss(2L * 1024 * 1024 * 1024)
+ *     .maxWallClockTime(TimeUnit.MINUTES.toMillis(30))
+ *     .build();
+ * </pre>
+ */
+public final class ResourceLimits {
+
+    private final long maxRss;
+    private final long maxCpuTime;
+    private final long maxWallClockTime;
+    private final int maxProcesses;
+
+    private ResourceLimits(Builder builder) {
+        this.maxRss = builder.maxRss;
+        this.maxCpuTime = builder.maxCpuTime;
+        this.maxWallClockTime = builder.maxWallClockTime;
+        this.maxProcesses = builder.maxProcesses;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return description of the first exceeded limit or null if the tree is
+     * within its limits
+     */
+    String check(TreeUsage usage, long wallClockTime) {
+        if (this.maxWallClockTime >= 0 && wallClockTime > this.maxWallClockTime) {
+            return "wall clock time " + wallClockTime + " ms > " + this.maxWallClockTime + " ms";
+        }
+        if (usage == null) {
+            return null;
+        }
+        if (this.maxRss >= 0 && usage.getRss() > this.maxRss) {
+            return "RSS " + usage.getRss() + " bytes > " + this.maxRss + " bytes";
+        }
+        long cpuTime = Math.max(0, usage.getUserTime()) + Math.max(0, usage.getSystemTime());
+        if (this.maxCpuTime >= 0 && cpuTime > this.maxCpuTime) {
+            return "CPU time " + cpuTime + " ms > " + this.maxCpuTime + " ms";
+        }
+        if (this.maxProcesses >= 0 && usage.getProcessCount() > this.maxProcesses) {
+            return "process count " + usage.getProcessCount() + " > " + this.maxProcesses;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceLimits{" + "maxRss=" + this.maxRss + ", maxCpuTime=" + this.maxCpuTime
+                + ", maxWallClockTime=" + this.maxWallClockTime + ", maxProcesses=" + this.maxProcesses + '}';
+    }
+
+    public static final class Builder {
+
+        private long maxRss = -1;
+        private long maxCpuTime = -1;
+        private long maxWallClockTime = -1;
+        private int maxProcesses = -1;
+
+        private Builder() {
+        }
+
+        /**
+         * Limit the summed resident set size of the tree (bytes).
+         */
+        public Builder maxRss(long bytes) {
+            this.maxRss = bytes;
+            return this;
+        }
+
+        /**
+         * Limit the summed user and system CPU time of the tree
+         * (milliseconds). CPU time of processes, that already exited, is not
+         * accounted.
+         */
+        public Builder maxCpuTime(long millis) {
+            this.maxCpuTime = millis;
+            return this;
+        }
+
+        /**
+         * Limit the time since the tree is watched (milliseconds).
+         */
+        public Builder maxWallClockTime(long millis) {
+            this.maxWallClockTime = millis;
+            return this;
+        }
+
+        /**
+         * Limit the number of processes in the tree, including the root.
+         */
+        public Builder maxProcesses(int count) {
+            this.maxProcesses = count;
+            return this;
+        }
+
+        public ResourceLimits build() {
+            return new ResourceLimits(this);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+/**
+ * Deadline, cancellation and progress reporting for scanning kills like
+ * {@link ProcessTreeKiller#kill(java.util.Map, ScanControl)}. The scan stops
+ * between two processes, when the deadline passed, {@link #cancel()} was
+ * called or the scanning thread was interrupted. The interrupt flag is left
+ * set.
+ *
+ * <pre>
+ * ScanControl control = ScanControl.builder()
+ *     .timeout(500)
+ *     .listener((processed, total) -&gt; progress.progress(processed, total))
+ *     .build();
+ * KillReport report = ProcessTreeKiller.get().kill(env, control);
+ * if (!report.isComplete()) {
+ *     // retry later or ask the user
+ * }
+ * </pre>
+ */
+public final class ScanControl {
+
+    /**
+     * Never stops, not even on interrupt: used for the ordinary snapshots,
+     * which are shared and must not be cut short.
+     */
+    static final ScanControl UNBOUNDED = new ScanControl(builder(), false);
+
+    private final boolean bounded;
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final ProgressListener listener;
+    private volatile boolean cancelled;
+
+    private ScanControl(Builder builder, boolean bounded) {
+        this.bounded = bounded;
+        this.hasDeadline = builder.timeout >= 0;
+        this.deadline = System.nanoTime() + builder.timeout * 1000000L;
+        this.listener = builder.listener;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Stop the scan using this control, the processes matched so far are
+     * still killed.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    boolean isStopped() {
+        return this.bounded && (this.cancelled
+                || (this.hasDeadline && System.nanoTime() - this.deadline > 0)
+                || Thread.currentThread().isInterrupted());
+    }
+
+    void progress(int processed, int total) {
+        if (this.listener != null) {
+            this.listener.progress(processed, total);
+        }
+    }
+
+    public interface ProgressListener {
+
+        /**
+         * Called on the scanning thread after each process was checked.
+         */
+        void progress(int processed, int total);
+    }
+
+    public static final class Builder {
+
+        private long timeout = -1;
+        private ProgressListener listener;
+
+        private Builder() {
+        }
+
+        /**
+         * Stop scanning {@code millis} milliseconds after {@link #build()}.
+         */
+        public Builder timeout(long millis) {
+            this.timeout = millis;
+            return this;
+        }
+
+        public Builder listener(ProgressListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public ScanControl build() {
+            return new ScanControl(this, true);
+        }
+    }
+}
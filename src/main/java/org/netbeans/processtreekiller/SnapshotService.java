@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight provider for process snapshots. A request always joins the
+ * snapshot in flight, however long that scan takes. A completed snapshot is
+ * reused if it was started within the freshness window. Only otherwise the
+ * process table is scanned again. A snapshot, that is not complete, is
+ * only returned to the request, that took it, and never shared.
+ */
+final class SnapshotService<S> {
+
+    private final Supplier<S> factory;
+    private final Predicate<? super S> complete;
+    private final long freshnessNanos;
+    private CompletableFuture<S> current;
+    private long startedAt;
+
+    SnapshotService(Supplier<S> factory, Predicate<? super S> complete, long freshnessMillis) {
+        this.factory = factory;
+        this.complete = complete;
+        this.freshnessNanos = TimeUnit.MILLISECONDS.toNanos(freshnessMillis);
+    }
+
+    S get() {
+        while (true) {
+            S result = this.tryGet();
+            if (result != null) {
+                return result;
+            }
+            // joined an incomplete snapshot, take one of our own
+        }
+    }
+
+    /**
+     * @return the snapshot or null if the joined scan was not complete
+     */
+    private S tryGet() {
+        CompletableFuture<S> snapshot;
+        boolean owner = false;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (this.current != null
+                    && (!this.current.isDone()
+                    || (now - this.startedAt <= this.freshnessNanos && !this.current.isCompletedExceptionally()))) {
+                snapshot = this.current;
+            } else {
+                snapshot = new CompletableFuture<>();
+                this.current = snapshot;
+                this.startedAt = now;
+                owner = true;
+            }
+        }
+        if (owner) {
+            S result;
+            try {
+                result = this.factory.get();
+            } catch (RuntimeException | Error e) {
+                snapshot.completeExceptionally(e);
+                throw e;
+            }
+            if (this.complete.test(result)) {
+                snapshot.complete(result);
+            } else {
+                synchronized (this) {
+                    if (this.current == snapshot) {
+                        this.current = null;
+                    }
+                }
+                snapshot.complete(null);
+            }
+            return result;
+        }
+        try {
+            return snapshot.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -24,6 +24,8 @@
  */
 package org.netbeans.processtreekiller;
 
+import java.util.stream.Stream;
+
 final class Solaris extends Unix<SolarisSystem> {
 
     Solaris() {
@@ -34,4 +36,19 @@ final class Solaris extends Unix<SolarisSystem> {
     protected SolarisSystem createSystem() {
         return new SolarisSystem();
     }
+
+    @Override
+    protected SolarisSystem createSystem(ScanControl control) {
+        return new SolarisSystem(control);
+    }
+
+    @Override
+    protected SolarisSystem createSystem(int[] pids) {
+        return new SolarisSystem(pids);
+    }
+
+    @Override
+    Stream<ProcessInfo> processes() {
+        return ProcfsUnixSystem.query(new SolarisSystem(new int[0]));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Page buffered reader for the address space file (/proc/&lt;pid&gt;/as) of
+ * a solaris process. Reads are done one page at a time, consecutive accesses
+ * to the same page (the argv/envp arrays and the strings they point to are
+ * usually located next to each other) are served from the buffer.
+ */
+final class SolarisAddressSpace implements Closeable {
+
+    static final int PAGE_SIZE = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer page;
+    private long pageAddress = -1;
+    private byte[] stringBuffer = new byte[256];
+
+    SolarisAddressSpace(Path file) throws IOException {
+        this(file, ByteOrder.nativeOrder());
+    }
+
+    SolarisAddressSpace(Path file, ByteOrder order) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.page = ByteBuffer.allocate(PAGE_SIZE).order(order);
+    }
+
+    int readInt(long address) throws IOException {
+        if (address % PAGE_SIZE <= PAGE_SIZE - 4) {
+            this.load(address);
+            return this.page.getInt((int) (address - this.pageAddress));
+        }
+        return this.readAcrossPages(address, 4).getInt(0);
+    }
+
+    long readLong(long address) throws IOException {
+        if (address % PAGE_SIZE <= PAGE_SIZE - 8) {
+            this.load(address);
+            return this.page.getLong((int) (address - this.pageAddress));
+        }
+        return this.readAcrossPages(address, 8).getLong(0);
+    }
+
+    /**
+     * Read a pointer of the process, {@code size} is 4 for 32 bit and 8 for
+     * 64 bit processes.
+     */
+    long readPointer(long address, int size) throws IOException {
+        return size == 8 ? this.readLong(address) : this.readInt(address) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Read a value crossing a page boundary byte by byte.
+     */
+    private ByteBuffer readAcrossPages(long address, int size) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(size).order(this.page.order());
+        for (int i = 0; i < size; i++) {
+            this.load(address + i);
+            value.put(this.page.get((int) (address + i - this.pageAddress)));
+        }
+        return value;
+    }
+
+    /**
+     * Read the NUL terminated string starting at {@code address}.
+     */
+    String readString(long address, Charset charset) throws IOException {
+        int length = 0;
+        long current = address;
+        while (true) {
+            this.load(current);
+            int start = (int) (current - this.pageAddress);
+            int end = start;
+            int limit = this.page.limit();
+            while (end < limit && this.page.get(end) != 0) {
+                end++;
+            }
+            int count = end - start;
+            if (length + count > this.stringBuffer.length) {
+                this.stringBuffer = Arrays.copyOf(this.stringBuffer, Math.max(this.stringBuffer.length * 2, length + count));
+            }
+            this.page.position(start);
+            this.page.get(this.stringBuffer, length, count);
+            length += count;
+            if (end < limit || limit < PAGE_SIZE) {
+                // terminator found or end of the readable memory
+                break;
+            }
+            current += count;
+        }
+        return new String(this.stringBuffer, 0, length, charset);
+    }
+
+    private void load(long address) throws IOException {
+        long target = address - address % PAGE_SIZE;
+        if (target == this.pageAddress) {
+            return;
+        }
+        this.pageAddress = -1;
+        this.page.clear();
+        while (this.page.hasRemaining()) {
+            if (this.channel.read(this.page, target + this.page.position()) < 0) {
+                break;
+            }
+        }
+        this.page.flip();
+        if (this.page.limit() <= address - target) {
+            throw new IOException("Failed to read address " + Long.toHexString(address));
+        }
+        this.pageAddress = target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -24,9 +24,14 @@
  */
 package org.netbeans.processtreekiller;
 
-import java.io.ByteArrayOutputStream;
+import com.sun.jna.Platform;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -36,45 +41,64 @@ import java.util.logging.Logger;
 class SolarisProcess extends UnixProcess<SolarisProcess> {
 
     private static final Logger LOGGER = Logger.getLogger(SolarisProcess.class.getName());
-    private static final boolean IS_LITTLE_ENDIAN = "little".equals(System.getProperty("sun.cpu.endian"));
+    /**
+     * The psinfo layout follows the data model of the reader, a 32 bit JVM
+     * sees the psinfo32 layout.
+     */
+    private static final boolean LP64 = Platform.is64Bit();
+    /**
+     * psinfo is read up to (and including) pr_dmodel.
+     */
+    static final int PSINFO_SIZE_32 = 201;
+    static final int PSINFO_SIZE_64 = 257;
+    private static final byte PR_MODEL_LP64 = 2;
 
     private final int pid;
     private final int ppid;
-    private final int envp;
-    private final int argp;
+    private final int pgid;
+    private final int sid;
+    private final long startTime;
+    private final int uid;
+    private final long rss;
+    private final long envp;
+    private final long argp;
     private final int argc;
+    private final int pointerSize;
     private EnvVars envVars;
     private List<String> arguments;
 
-    /*
-     * WARNING - Removed try catching itself - possible behaviour change.
-     */
     SolarisProcess(SolarisSystem system, int pid) throws IOException {
         super(system);
         this.pid = pid;
-        try (RandomAccessFile psinfo = new RandomAccessFile(this.getFile("psinfo"), "r")) {
-            psinfo.seek(8L);
-            if (this.adjust(psinfo.readInt()) != pid) {
-                throw new IOException("psinfo PID mismatch");
+        // psinfo is written in the byte order of the host
+        ByteBuffer psinfo = ByteBuffer.allocate(LP64 ? PSINFO_SIZE_64 : PSINFO_SIZE_32).order(ByteOrder.nativeOrder());
+        try (FileChannel channel = FileChannel.open(this.getPath("psinfo"), StandardOpenOption.READ)) {
+            while (psinfo.hasRemaining() && channel.read(psinfo) >= 0) {
+                // continue reading until the buffer is filled or EOF is hit
             }
-            this.ppid = this.adjust(psinfo.readInt());
-            psinfo.seek(188L);
-            this.argc = this.adjust(psinfo.readInt());
-            this.argp = this.adjust(psinfo.readInt());
-            this.envp = this.adjust(psinfo.readInt());
         }
+        if (psinfo.hasRemaining()) {
+            throw new IOException("Truncated psinfo for " + pid);
+        }
+        Psinfo info = new Psinfo(psinfo, LP64);
+        if (info.pid != pid) {
+            throw new IOException("psinfo PID mismatch");
+        }
+        this.ppid = info.ppid;
+        this.pgid = info.pgid;
+        this.sid = info.sid;
+        this.uid = info.uid;
+        this.rss = info.rss;
+        this.startTime = info.startTime;
+        this.argc = info.argc;
+        this.argp = info.argv;
+        this.envp = info.envp;
+        this.pointerSize = info.pointerSize;
         if (this.ppid == -1) {
             throw new IOException("Failed to parse PPID from /proc/" + pid + "/status");
         }
     }
 
-    private int adjust(int i) {
-        if (IS_LITTLE_ENDIAN) {
-            return i << 24 | i << 8 & 16711680 | i >> 8 & 65280 | i >>> 24;
-        }
-        return i;
-    }
-
     @Override
     public int getPid() {
         return this.pid;
@@ -85,92 +109,150 @@ class SolarisProcess extends UnixProcess<SolarisProcess> {
         return (SolarisProcess) this.system.get(this.ppid);
     }
 
-    /*
-     * WARNING - Removed try catching itself - possible behaviour change.
-     */
+    @Override
+    public int getPpid() {
+        return this.ppid;
+    }
+
+    @Override
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    @Override
+    public int getUid() {
+        return this.uid;
+    }
+
+    @Override
+    public long getRss() {
+        return this.rss;
+    }
+
+    @Override
+    public int getPgid() {
+        return this.pgid;
+    }
+
+    @Override
+    public Path getWorkingDirectory() {
+        return this.readLink("path/cwd");
+    }
+
+    @Override
+    public Path getExecutable() {
+        return this.readLink("path/a.out");
+    }
+
+    @Override
+    public int getSid() {
+        return this.sid;
+    }
+
     @Override
     public synchronized List<String> getArguments() {
-        if (this.arguments != null) {
-            return this.arguments;
-        }
-        this.arguments = new ArrayList<>(this.argc);
-        try {
-            RandomAccessFile as = new RandomAccessFile(this.getFile("as"), "r");
-            if (LOGGER.isLoggable(Level.FINER)) {
-                LOGGER.log(Level.FINER, "Reading {0}", this.getFile("as"));
-            }
-            try {
-                for (int n = 0; n < this.argc; ++n) {
-                    as.seek(SolarisProcess.to64(this.argp + n * 4));
-                    int p = this.adjust(as.readInt());
-                    this.arguments.add(this.readLine(as, p, "argv[" + n + "]"));
-                }
-            } finally {
-                as.close();
-            }
-        } catch (IOException as) {
-            // empty catch block
+        if (this.arguments == null) {
+            this.readAddressSpace();
         }
-        this.arguments = Collections.unmodifiableList(this.arguments);
         return this.arguments;
     }
 
-    /*
-     * WARNING - Removed try catching itself - possible behaviour change.
-     */
     @Override
     public synchronized EnvVars getEnvVars() {
-        if (this.envVars != null) {
-            return this.envVars;
+        if (this.envVars == null) {
+            this.readAddressSpace();
         }
+        return this.envVars;
+    }
+
+    /**
+     * Read arguments and environment in one pass over the address space.
+     */
+    private void readAddressSpace() {
+        List<String> args = new ArrayList<>(this.argc);
         this.envVars = new EnvVars();
-        try {
-            RandomAccessFile as = new RandomAccessFile(this.getFile("as"), "r");
-            if (LOGGER.isLoggable(Level.FINER)) {
-                LOGGER.log(Level.FINER, "Reading {0}", this.getFile("as"));
-            }
-            try {
-                int n = 0;
-                do {
-                    as.seek(SolarisProcess.to64(this.envp + n * 4));
-                    int p = this.adjust(as.readInt());
-                    if (p == 0) {
-                        break;
-                    }
-                    this.envVars.addLine(this.readLine(as, p, "env[" + n + "]"));
-                    ++n;
-                } while (true);
-            } finally {
-                as.close();
+        if (LOGGER.isLoggable(Level.FINER)) {
+            LOGGER.log(Level.FINER, "Reading {0}", this.getFile("as"));
+        }
+        Charset charset = Charset.defaultCharset();
+        try (SolarisAddressSpace as = new SolarisAddressSpace(this.getPath("as"))) {
+            for (int n = 0; n < this.argc; ++n) {
+                long p = as.readPointer(this.argp + (long) n * this.pointerSize, this.pointerSize);
+                args.add(this.readLine(as, p, "argv[" + n + "]", charset));
             }
+            int n = 0;
+            do {
+                long p = as.readPointer(this.envp + (long) n * this.pointerSize, this.pointerSize);
+                if (p == 0) {
+                    break;
+                }
+                this.envVars.addLine(this.readLine(as, p, "env[" + n + "]", charset));
+                ++n;
+            } while (true);
         } catch (IOException as) {
             // empty catch block
         }
-        return this.envVars;
+        this.arguments = Collections.unmodifiableList(args);
     }
 
-    private String readLine(RandomAccessFile as, int p, String prefix) throws IOException {
-        int ch;
+    private String readLine(SolarisAddressSpace as, long p, String prefix, Charset charset) throws IOException {
         if (LOGGER.isLoggable(Level.FINEST)) {
             LOGGER.log(Level.FINEST, "Reading {0} at {1}", new Object[]{prefix, p});
         }
-        as.seek(SolarisProcess.to64(p));
-        ByteArrayOutputStream buf = new ByteArrayOutputStream();
-        int i = 0;
-        while ((ch = as.read()) > 0) {
-            if (++i % 100 == 0 && LOGGER.isLoggable(Level.FINEST)) {
-                LOGGER.log(Level.FINEST, "{0} is so far {1}", new Object[]{prefix, buf.toString()});
-            }
-            buf.write(ch);
-        }
-        String line = buf.toString();
+        String line = as.readString(p, charset);
         if (LOGGER.isLoggable(Level.FINEST)) {
             LOGGER.log(Level.FINEST, "{0} was {1}", new Object[]{prefix, line});
         }
         return line;
     }
 
-    private static long to64(int i) {
-        return (long) i & 0xFFFFFFFFL;
+    /**
+     * The fields of psinfo used here, decoded in the byte order of the
+     * buffer. Offsets follow psinfo_t (LP64 readers) and psinfo32_t.
+     */
+    static final class Psinfo {
+
+        final int pid;
+        final int ppid;
+        final int pgid;
+        final int sid;
+        final int uid;
+        final long rss;
+        final long startTime;
+        final int argc;
+        final long argv;
+        final long envp;
+        /**
+         * Size (bytes) of the pointers in the address space of the process.
+         */
+        final int pointerSize;
+
+        Psinfo(ByteBuffer psinfo, boolean lp64) {
+            this.pid = psinfo.getInt(8);
+            this.ppid = psinfo.getInt(12);
+            this.pgid = psinfo.getInt(16);
+            this.sid = psinfo.getInt(20);
+            this.uid = psinfo.getInt(24);
+            if (lp64) {
+                this.rss = psinfo.getLong(56) * 1024;
+                this.startTime = psinfo.getLong(88) * 1000 + psinfo.getLong(96) / 1000000;
+                this.argc = psinfo.getInt(236);
+                this.argv = psinfo.getLong(240);
+                this.envp = psinfo.getLong(248);
+                this.pointerSize = psinfo.get(256) == PR_MODEL_LP64 ? 8 : 4;
+            } else {
+                this.rss = to64(psinfo.getInt(48)) * 1024;
+                this.startTime = to64(psinfo.getInt(64)) * 1000 + to64(psinfo.getInt(68)) / 1000000;
+                this.argc = psinfo.getInt(188);
+                this.argv = to64(psinfo.getInt(192));
+                this.envp = to64(psinfo.getInt(196));
+                // a 32 bit reader only gets usable addresses of 32 bit processes
+                this.pointerSize = 4;
+            }
+        }
+
+        private static long to64(int i) {
+            return (long) i & 0xFFFFFFFFL;
+        }
     }
 }
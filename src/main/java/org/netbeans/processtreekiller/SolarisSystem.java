@@ -31,6 +31,18 @@ class SolarisSystem extends ProcfsUnixSystem<SolarisProcess> {
     SolarisSystem() {
     }
 
+    SolarisSystem(int[] pids) {
+        super(pids);
+    }
+
+    SolarisSystem(ScanControl control) {
+        super(control);
+    }
+
+    SolarisSystem(int[] pids, ScanControl control) {
+        super(pids, control);
+    }
+
     @Override
     protected SolarisProcess createProcess(int pid) throws IOException {
         return new SolarisProcess(this, pid);
@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+/**
+ * Resource usage summed over a process and its descendants, see
+ * {@link ProcessTreeKiller#getUsage(Process)}. Values not available for any
+ * process of the tree (platform does not provide them or access was denied)
+ * are reported as -1.
+ */
+public final class TreeUsage {
+
+    private int processCount;
+    private long userTime = -1;
+    private long systemTime = -1;
+    private long rss = -1;
+    private long readBytes = -1;
+    private long writeBytes = -1;
+
+    TreeUsage() {
+    }
+
+    void reset() {
+        this.processCount = 0;
+        this.userTime = -1;
+        this.systemTime = -1;
+        this.rss = -1;
+        this.readBytes = -1;
+        this.writeBytes = -1;
+    }
+
+    void add(long processUserTime, long processSystemTime, long processRss) {
+        this.processCount++;
+        this.userTime = add(this.userTime, processUserTime);
+        this.systemTime = add(this.systemTime, processSystemTime);
+        this.rss = add(this.rss, processRss);
+    }
+
+    void add(UnixProcess<?> p) {
+        this.add(p.getUserTime(), p.getSystemTime(), p.getRss());
+        this.readBytes = add(this.readBytes, p.getReadBytes());
+        this.writeBytes = add(this.writeBytes, p.getWriteBytes());
+    }
+
+    private static long add(long sum, long value) {
+        if (value < 0) {
+            return sum;
+        }
+        return sum < 0 ? value : sum + value;
+    }
+
+    public int getProcessCount() {
+        return this.processCount;
+    }
+
+    /**
+     * @return CPU time spent in user mode in milliseconds
+     */
+    public long getUserTime() {
+        return this.userTime;
+    }
+
+    /**
+     * @return CPU time spent in kernel mode in milliseconds
+     */
+    public long getSystemTime() {
+        return this.systemTime;
+    }
+
+    /**
+     * @return resident set size in bytes, shared pages are counted once per
+     * process
+     */
+    public long getRss() {
+        return this.rss;
+    }
+
+    /**
+     * @return bytes read from storage
+     */
+    public long getReadBytes() {
+        return this.readBytes;
+    }
+
+    /**
+     * @return bytes written to storage
+     */
+    public long getWriteBytes() {
+        return this.writeBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "TreeUsage{" + "processCount=" + this.processCount + ", userTime=" + this.userTime
+                + ", systemTime=" + this.systemTime + ", rss=" + this.rss
+                + ", readBytes=" + this.readBytes + ", writeBytes=" + this.writeBytes + '}';
+    }
+}
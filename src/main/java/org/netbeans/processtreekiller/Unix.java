@@ -24,45 +24,599 @@
  */
 package org.netbeans.processtreekiller;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 abstract class Unix<S extends UnixSystem<?>> extends ProcessTreeKiller {
 
+    private static final Logger LOGGER = Logger.getLogger(Unix.class.getName());
     private static final Field PID_FIELD;
+    /**
+     * Requests for a snapshot started within this window (milliseconds) share
+     * the same scan of the process table.
+     */
+    private static final long SNAPSHOT_FRESHNESS = Long.getLong(ProcessTreeKiller.class.getName() + ".snapshotFreshness", 100);
+    private static final ConcurrentMap<Class<?>, SnapshotService<?>> SNAPSHOTS = new ConcurrentHashMap<>();
+    private static final int FREEZE_MAX_PASSES = Integer.getInteger(ProcessTreeKiller.class.getName() + ".freezeMaxPasses", 32);
+    private static final long MEMORY_TARGET = Long.getLong(ProcessTreeKiller.class.getName() + ".memoryTarget", -1);
 
     Unix() {
     }
 
     protected abstract S createSystem();
 
+    /**
+     * Create a snapshot, that only holds the supplied processes. Processes
+     * that don't exist (anymore) are silently skipped.
+     */
+    protected abstract S createSystem(int[] pids);
+
+    /**
+     * Create a snapshot of all processes, that stops early if
+     * {@code control} requests it. The default ignores {@code control}.
+     */
+    protected S createSystem(ScanControl control) {
+        return this.createSystem();
+    }
+
+    /**
+     * @return the compact table of all processes. The default builds it from
+     * a full snapshot, backends able to read only the table override this.
+     */
+    ProcessTable readProcessTable() {
+        List<UnixProcess<?>> processes = new ArrayList<>();
+        for (UnixProcess<?> p : this.createSystem()) {
+            processes.add(p);
+        }
+        processes.sort((p1, p2) -> Integer.compare(p1.getPid(), p2.getPid()));
+        int size = processes.size();
+        int[] pids = new int[size];
+        int[] ppids = new int[size];
+        int[] pgids = new int[size];
+        int[] sids = new int[size];
+        long[] startTimes = new long[size];
+        for (int i = 0; i < size; i++) {
+            UnixProcess<?> p = processes.get(i);
+            pids[i] = p.getPid();
+            ppids[i] = p.getPpid();
+            pgids[i] = p.getPgid();
+            sids[i] = p.getSid();
+            startTimes[i] = p.getStartTime();
+        }
+        return new ProcessTable(pids, ppids, pgids, sids, startTimes, size);
+    }
+
+    /**
+     * @return a snapshot of all processes, possibly shared with concurrent
+     * requests
+     */
+    S snapshot() {
+        return ((SnapshotService<S>) SNAPSHOTS.computeIfAbsent(this.getClass(),
+                c -> new SnapshotService<>(this::createSystem, UnixSystem::isComplete, SNAPSHOT_FRESHNESS))).get();
+    }
+
     @Override
     public void kill(Process proc, Map<String, String> modelEnvVars) {
-        S system = this.createSystem();
+        UnixSystem<?> system = this.snapshot();
         if (proc != null) {
-            UnixProcess p;
-            try {
-                p = ((UnixSystem) system).get((Integer) PID_FIELD.get(proc));
-            } catch (IllegalAccessException e) {
-                IllegalAccessError x = new IllegalAccessError();
-                x.initCause(e);
-                throw x;
-            }
+            UnixProcess<?> p = system.get(getPid(proc));
             if (p == null) {
                 proc.destroy();
             } else {
-                ((UnixProcess) ((Object) p)).killRecursively();
+                this.killTree(p);
                 proc.destroy();
             }
         }
         if (modelEnvVars != null) {
-            for (UnixProcess lp : system) {
+            for (UnixProcess<?> lp : system) {
                 if (!this.hasMatchingEnvVars(lp.getEnvVars(), modelEnvVars)) {
                     continue;
                 }
-                lp.killRecursively();
+                this.killTree(lp);
+            }
+        }
+    }
+
+    @Override
+    public KillReport kill(Map<String, String> modelEnvVars, ScanControl control) {
+        return this.kill(p -> this.hasMatchingEnvVars(p.getEnvVars(), modelEnvVars), control);
+    }
+
+    @Override
+    public KillReport kill(ArgvMatcher matcher, ScanControl control) {
+        Set<Integer> protectedPids = getProtectedPids(this.snapshot());
+        return this.kill(p -> !protectedPids.contains(p.getPid()) && matcher.matches(p.getRawArguments()), control);
+    }
+
+    @Override
+    public KillReport killUnder(Collection<Path> roots, ScanControl control) {
+        List<Path> prefixes = new ArrayList<>();
+        for (Path root : roots) {
+            prefixes.add(toRealPath(root));
+        }
+        Set<Integer> protectedPids = getProtectedPids(this.snapshot());
+        return this.kill(p -> !protectedPids.contains(p.getPid())
+                && (isBelow(p.getWorkingDirectory(), prefixes) || isBelow(p.getExecutable(), prefixes)), control);
+    }
+
+    /**
+     * Kill the trees of {@code pids} (except for the JVM and its ancestors).
+     */
+    KillReport killAll(S system, Set<Integer> pids, long start) {
+        Set<Integer> protectedPids = getProtectedPids(system);
+        List<Integer> killed = new ArrayList<>();
+        long reclaimed = 0;
+        for (Integer pid : pids) {
+            UnixProcess<?> p = system.get(pid);
+            if (p != null && !protectedPids.contains(pid)) {
+                reclaimed += this.killTree(p);
+                killed.add(pid);
+            }
+        }
+        return new KillReport(-1, KillReport.Method.SCAN, System.nanoTime() - start, killed, true, reclaimed);
+    }
+
+    /**
+     * @return pids of the JVM and its ancestors, which are never killed by
+     * selectors matching on the environment of the JVM (command line,
+     * working directory, open files)
+     */
+    private static Set<Integer> getProtectedPids(UnixSystem<?> system) {
+        Set<Integer> result = new HashSet<>();
+        for (UnixProcess<?> p = system.get(getOwnPid()); p != null && result.add(p.getPid());) {
+            p = system.get(p.getPpid());
+        }
+        return result;
+    }
+
+    static List<ProcessInfo> toProcessInfos(UnixSystem<?> system, Set<Integer> pids) {
+        List<ProcessInfo> result = new ArrayList<>();
+        for (Integer pid : pids) {
+            UnixProcess<?> p = system.get(pid);
+            if (p != null) {
+                result.add(new UnixProcessInfo(p));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The links in /proc point to the resolved paths, so symbolic links in
+     * the roots are resolved, if possible.
+     */
+    static Path toRealPath(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException ex) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
+    private static boolean isBelow(Path path, List<Path> prefixes) {
+        if (path == null) {
+            return false;
+        }
+        for (Path prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private KillReport kill(Predicate<UnixProcess<?>> filter, ScanControl control) {
+        long start = System.nanoTime();
+        UnixSystem<?> system = this.createSystem(control);
+        boolean complete = !control.isStopped();
+        List<Integer> killed = new ArrayList<>();
+        long reclaimed = 0;
+        int total = system.processes.size();
+        int processed = 0;
+        for (UnixProcess<?> p : system) {
+            if (!complete || control.isStopped()) {
+                complete = false;
+                break;
+            }
+            if (filter.test(p)) {
+                reclaimed += this.killTree(p);
+                killed.add(p.getPid());
+            }
+            control.progress(++processed, total);
+        }
+        return new KillReport(-1, KillReport.Method.SCAN, System.nanoTime() - start, killed, complete, reclaimed);
+    }
+
+    @Override
+    public void kill(Collection<Map<String, String>> modelEnvVars) {
+        this.kill(modelEnvVars, this.snapshot());
+    }
+
+    /**
+     * Like {@link #kill(Collection)}, but matching the processes of the
+     * supplied snapshot.
+     */
+    void kill(Collection<Map<String, String>> modelEnvVars, UnixSystem<?> system) {
+        EnvVarIndex index = new EnvVarIndex(modelEnvVars);
+        if (index.isEmpty()) {
+            return;
+        }
+        for (UnixProcess<?> p : system) {
+            index.add(p.getPid(), p.getEnvVars());
+        }
+        for (int pid : index.matchAny()) {
+            UnixProcess<?> p = system.get(pid);
+            if (p != null) {
+                this.killTree(p);
+            }
+        }
+    }
+
+    @Override
+    public TreeUsage getUsage(Process proc) {
+        int pid = getPid(proc);
+        Set<Integer> pids = this.getDescendantPids(Collections.singleton(pid));
+        pids.add(pid);
+        TreeUsage result = new TreeUsage();
+        UnixSystem<?> system = this.createSystem(toArray(pids));
+        for (UnixProcess<?> p : system) {
+            result.add(p);
+        }
+        return result;
+    }
+
+    @Override
+    void prepare() {
+        this.snapshot().get(getOwnPid());
+    }
+
+    @Override
+    public void kill(ArgvMatcher matcher) {
+        UnixSystem<?> system = this.snapshot();
+        Set<Integer> protectedPids = getProtectedPids(system);
+        for (UnixProcess<?> p : system) {
+            if (protectedPids.contains(p.getPid()) || !matcher.matches(p.getRawArguments())) {
+                continue;
+            }
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Killing {0} {1}", new Object[]{p.getPid(), p.getArguments()});
+            }
+            this.killTree(p);
+        }
+    }
+
+    /**
+     * @return bytes reclaimed through {@link #killAndRelease(int, boolean)}
+     */
+    long killTree(UnixProcess<?> p) {
+        if (strategy == KillStrategy.FREEZE) {
+            return this.freezeAndKill(p);
+        } else if (strategy == KillStrategy.MEMORY) {
+            return this.killLargestFirst(p);
+        } else {
+            p.killRecursively(strategy);
+            return 0;
+        }
+    }
+
+    /**
+     * Stop the tree rooted at {@code root} and look for new children of the
+     * stopped processes until a pass finds nothing new. Only then all
+     * processes are killed, so that a fork storm can't outrun the kill.
+     */
+    long freezeAndKill(UnixProcess<?> root) {
+        long reclaimed = 0;
+        try {
+            for (Integer pid : this.stopTree(root.getPid())) {
+                long released = this.killAndRelease(pid, true);
+                if (released > 0) {
+                    reclaimed += released;
+                }
             }
+        } catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "libc not available, falling back to recursive kill", e);
+            root.killRecursively();
+        }
+        return reclaimed;
+    }
+
+    /**
+     * SIGSTOP the tree rooted at {@code root} and look for new children of
+     * the stopped processes until a pass finds nothing new.
+     *
+     * @return the stopped processes
+     */
+    private Set<Integer> stopTree(int root) {
+        int ownPid = getOwnPid();
+        Set<Integer> frozen = new HashSet<>();
+        Set<Integer> pending = new HashSet<>();
+        pending.add(root);
+        pending.addAll(this.getDescendantPids(Collections.singleton(root)));
+        int pass = 0;
+        while (!pending.isEmpty()) {
+            if (++pass > FREEZE_MAX_PASSES) {
+                LOGGER.log(Level.INFO, "Tree of {0} still growing after {1} passes, {2} processes stopped",
+                        new Object[]{root, FREEZE_MAX_PASSES, frozen.size()});
+                break;
+            }
+            for (Integer pid : pending) {
+                if (pid != ownPid && UnixCLibrary.LIBC.kill(pid, UnixCLibrary.SIGSTOP) == 0) {
+                    frozen.add(pid);
+                }
+            }
+            pending = this.getChildPids(pending);
+            pending.removeAll(frozen);
+        }
+        return frozen;
+    }
+
+    @Override
+    public int suspend(Process proc) {
+        try {
+            return this.stopTree(getPid(proc)).size();
+        } catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "libc not available, can't suspend", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public int resume(Process proc) {
+        return this.forEachInTree(getPid(proc), pid -> UnixCLibrary.LIBC.kill(pid, UnixCLibrary.SIGCONT) == 0);
+    }
+
+    @Override
+    public int setPriority(Process proc, int nice) {
+        return this.forEachInTree(getPid(proc), pid -> this.forEachThread(pid,
+                tid -> UnixCLibrary.LIBC.setpriority(UnixCLibrary.PRIO_PROCESS, tid, nice) == 0));
+    }
+
+    /**
+     * Apply {@code action} to {@code root} and its descendants, the JVM is
+     * skipped.
+     *
+     * @return number of processes {@code action} succeeded for
+     */
+    int forEachInTree(int root, IntPredicate action) {
+        Set<Integer> pids = this.getDescendantPids(Collections.singleton(root));
+        pids.add(root);
+        pids.remove(getOwnPid());
+        int count = 0;
+        try {
+            for (Integer pid : pids) {
+                if (action.test(pid)) {
+                    count++;
+                }
+            }
+        } catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "libc not available", e);
+        }
+        return count;
+    }
+
+    /**
+     * Apply {@code action} to all threads of {@code pid}, for the per thread
+     * attributes (linux: nice, ioprio, affinity). The default only passes
+     * {@code pid}.
+     *
+     * @return true if {@code action} succeeded for any thread
+     */
+    protected boolean forEachThread(int pid, IntPredicate action) {
+        return action.test(pid);
+    }
+
+    /**
+     * SIGKILL the tree rooted at {@code root} ordered by RSS, the largest
+     * process first. Stops early once the available memory reaches
+     * {@link #MEMORY_TARGET}.
+     */
+    long killLargestFirst(UnixProcess<?> root) {
+        Set<Integer> pids = this.getDescendantPids(Collections.singleton(root.getPid()));
+        pids.add(root.getPid());
+        pids.remove(getOwnPid());
+        // a fresh read, the RSS of the snapshot might be outdated
+        List<UnixProcess<?>> victims = new ArrayList<>();
+        UnixSystem<?> system = this.createSystem(toArray(pids));
+        for (UnixProcess<?> p : system) {
+            victims.add(p);
+        }
+        victims.sort(Comparator.comparingLong((UnixProcess<?> p) -> p.getRss()).reversed());
+        long reclaimed = 0;
+        try {
+            for (UnixProcess<?> p : victims) {
+                if (MEMORY_TARGET >= 0) {
+                    long available = this.getAvailableMemory();
+                    if (available >= MEMORY_TARGET) {
+                        LOGGER.log(Level.FINE, "{0} bytes available, not killing remaining processes of {1}",
+                                new Object[]{available, root.getPid()});
+                        return reclaimed;
+                    }
+                }
+                long released = this.killAndRelease(p.getPid(), false);
+                if (released >= 0) {
+                    reclaimed += released;
+                    if (MEMORY_TARGET >= 0) {
+                        this.awaitExit(p.getPid());
+                    }
+                }
+            }
+        } catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "libc not available, falling back to recursive kill", e);
+            root.killRecursively();
+        }
+        return reclaimed;
+    }
+
+    /**
+     * @return memory available for new allocations in bytes or -1 if unknown
+     */
+    protected long getAvailableMemory() {
+        return -1;
+    }
+
+    /**
+     * SIGKILL {@code pid} and reap its address space without waiting for its
+     * exit, where the platform can. The default only sends the signal.
+     *
+     * @param resume true if {@code pid} was stopped and should be continued,
+     * if it can't be killed. The default never resumes: after a failed kill
+     * the pid might already name another process.
+     * @return released resident memory in bytes, 0 if nothing was released,
+     * -1 if the process could not be killed
+     */
+    protected long killAndRelease(int pid, boolean resume) {
+        return UnixCLibrary.LIBC.kill(pid, UnixCLibrary.SIGKILL) == 0 ? 0 : -1;
+    }
+
+    /**
+     * Wait (briefly) until the killed process {@code pid} exited, so that its
+     * memory was released.
+     */
+    protected void awaitExit(int pid) {
+    }
+
+    @Override
+    Stream<ProcessInfo> processes() {
+        UnixSystem<?> system = this.snapshot();
+        return StreamSupport.stream(system.spliterator(), false)
+                .map(UnixProcessInfo::new);
+    }
+
+    /**
+     * @return pids of the live children of the process {@code pid}
+     */
+    protected Set<Integer> getChildPids(int pid) {
+        return this.getChildPids(Collections.singleton(pid));
+    }
+
+    /**
+     * @return pids of the live children of the supplied processes
+     */
+    protected Set<Integer> getChildPids(Collection<Integer> pids) {
+        // not shared, callers look for processes started just now
+        UnixSystem<?> system = this.createSystem();
+        Set<Integer> result = new HashSet<>();
+        for (UnixProcess<?> p : system) {
+            if (pids.contains(p.getPpid())) {
+                result.add(p.getPid());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return pids of the live descendants of the supplied processes (not
+     * including the roots themselves)
+     */
+    protected Set<Integer> getDescendantPids(Collection<Integer> roots) {
+        return this.snapshot().getDescendantPids(roots);
+    }
+
+    /**
+     * Locate the live child of this JVM, that carries {@code cookie} in the
+     * environment variable {@code variable}. Only the environments of the
+     * direct children are inspected.
+     */
+    UnixProcess<?> findChild(String variable, String cookie) {
+        UnixSystem<?> system = this.createSystem(toArray(this.getChildPids(getOwnPid())));
+        for (UnixProcess<?> p : system) {
+            if (cookie.equals(p.getEnvVars().get(variable))) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Kill the processes recorded for a launched process. Recorded pids are
+     * only verified against their start time and extended by their live
+     * descendants, no environment scan is done.
+     */
+    void kill(LaunchedProcess launched) {
+        Map<Integer, Long> known = launched.getKnownProcesses();
+        List<UnixProcess<?>> victims = new ArrayList<>();
+        Set<Integer> verified = new HashSet<>();
+        UnixSystem<?> system = this.createSystem(toArray(known.keySet()));
+        for (UnixProcess<?> p : system) {
+            if (p.getStartTime() == known.get(p.getPid())) {
+                victims.add(p);
+                verified.add(p.getPid());
+            }
+        }
+        UnixSystem<?> descendants = this.createSystem(toArray(this.getDescendantPids(verified)));
+        for (UnixProcess<?> p : descendants) {
+            victims.add(p);
+        }
+        killBottomUp(victims);
+        launched.getProcess().destroy();
+    }
+
+    /**
+     * Kill the known processes of a launched process, that was already
+     * updated from {@code system}.
+     */
+    void kill(LaunchedProcess launched, UnixSystem<?> system) {
+        List<UnixProcess<?>> victims = new ArrayList<>();
+        for (Map.Entry<Integer, Long> e : launched.getKnownProcesses().entrySet()) {
+            UnixProcess<?> p = system.get(e.getKey());
+            if (p != null && p.getStartTime() == e.getValue()) {
+                victims.add(p);
+            }
+        }
+        killBottomUp(victims);
+        launched.getProcess().destroy();
+    }
+
+    private static void killBottomUp(List<UnixProcess<?>> victims) {
+        // children are started after their parents, so this kills bottom-up
+        victims.sort(Comparator.comparingLong((UnixProcess<?> p) -> p.getStartTime()).reversed());
+        for (UnixProcess<?> p : victims) {
+            p.kill();
+        }
+    }
+
+    static int getPid(Process proc) {
+        try {
+            return (Integer) PID_FIELD.get(proc);
+        } catch (IllegalAccessException e) {
+            IllegalAccessError x = new IllegalAccessError();
+            x.initCause(e);
+            throw x;
+        }
+    }
+
+    static int getOwnPid() {
+        try {
+            return UnixCLibrary.LIBC.getpid();
+        } catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "Failed to call getpid", e);
+            return -1;
+        }
+    }
+
+    static int[] toArray(Collection<Integer> pids) {
+        int[] result = new int[pids.size()];
+        int i = 0;
+        for (Integer pid : pids) {
+            result[i++] = pid;
         }
+        return result;
     }
 
     static {
@@ -0,0 +1,76 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Platform;
+
+interface UnixCLibrary extends Library {
+    public static final UnixCLibrary LIBC = Native.load("c", UnixCLibrary.class);
+
+    public static final int SIGKILL = 9;
+    public static final int SIGTERM = 15;
+    public static final int SIGSTOP = Platform.isLinux() ? 19 : Platform.isSolaris() ? 23 : 17;
+    public static final int SIGCONT = Platform.isLinux() ? 18 : Platform.isSolaris() ? 25 : 19;
+
+    public static final int _SC_CLK_TCK = 2;
+
+    /**
+     * Linux syscall numbers, syscalls added since 5.1 share the same number
+     * on all architectures but alpha.
+     */
+    public static final long SYS_PIDFD_SEND_SIGNAL = 424;
+    public static final long SYS_PIDFD_OPEN = 434;
+    public static final long SYS_PROCESS_MRELEASE = 448;
+    public static final int ESRCH = 3;
+    public static final int ENOSYS = 38;
+    public static final int PRIO_PROCESS = 0;
+
+    public String strerror(int errnum);
+
+    public int getpid();
+
+    public int getpgid(int pid);
+
+    public int getsid(int pid);
+
+    public int kill(int pid, int sig);
+
+    public int killpg(int pgrp, int sig);
+
+    public NativeLong sysconf(int name);
+
+    public int getpagesize();
+
+    public int close(int fd);
+
+    public int setpriority(int which, int who, int prio);
+
+    public int sched_setaffinity(int pid, NativeLong cpusetsize, long[] mask);
+
+    public NativeLong syscall(NativeLong number, Object... args);
+}
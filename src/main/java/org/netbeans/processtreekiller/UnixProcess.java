@@ -24,13 +24,22 @@
  */
 package org.netbeans.processtreekiller;
 
+import com.sun.jna.Native;
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -66,6 +75,115 @@ abstract class UnixProcess<P extends UnixProcess<P>> {
 
     public abstract P getParent();
 
+    /**
+     * @return pid of the parent process
+     */
+    public abstract int getPpid();
+
+    /**
+     * @return start time of the process in milliseconds since the epoch or -1
+     * if unknown
+     */
+    public abstract long getStartTime();
+
+    /**
+     * @return process group id or -1 if unknown
+     */
+    public abstract int getPgid();
+
+    /**
+     * @return session id or -1 if unknown
+     */
+    public abstract int getSid();
+
+    /**
+     * @return (effective) user id owning the process or -1 if unknown
+     */
+    public int getUid() {
+        return -1;
+    }
+
+    /**
+     * @return state of the process in the notation of {@code ps} (for example
+     * 'R' running, 'S' sleeping, 'T' stopped, 'Z' zombie) or '?' if unknown
+     */
+    public char getState() {
+        return '?';
+    }
+
+    public boolean isZombie() {
+        return this.getState() == 'Z';
+    }
+
+    /**
+     * @return CPU time spent in user mode in milliseconds or -1 if unknown
+     */
+    public long getUserTime() {
+        return -1;
+    }
+
+    /**
+     * @return CPU time spent in kernel mode in milliseconds or -1 if unknown
+     */
+    public long getSystemTime() {
+        return -1;
+    }
+
+    /**
+     * @return resident set size in bytes or -1 if unknown
+     */
+    public long getRss() {
+        return -1;
+    }
+
+    /**
+     * @return bytes read from storage or -1 if unknown
+     */
+    public long getReadBytes() {
+        return -1;
+    }
+
+    /**
+     * @return bytes written to storage or -1 if unknown
+     */
+    public long getWriteBytes() {
+        return -1;
+    }
+
+    /**
+     * @return current working directory of the process or null if unknown
+     */
+    public Path getWorkingDirectory() {
+        return null;
+    }
+
+    /**
+     * @return path of the executable of the process or null if unknown
+     */
+    public Path getExecutable() {
+        return null;
+    }
+
+    /**
+     * Read a symbolic link below /proc/&lt;pid&gt;.
+     *
+     * @return the link target or null if it can't be read (process gone,
+     * access denied)
+     */
+    protected final Path readLink(String relativePath) {
+        try {
+            Path target = Files.readSymbolicLink(this.getPath(relativePath));
+            String name = target.toString();
+            // the file was removed after it was opened
+            if (name.endsWith(" (deleted)")) {
+                target = Paths.get(name.substring(0, name.length() - 10));
+            }
+            return target;
+        } catch (IOException | UnsupportedOperationException ex) {
+            return null;
+        }
+    }
+
     protected final File getFile(String relativePath) {
         return new File(new File("/proc/" + this.getPid()), relativePath);
     }
@@ -75,14 +193,7 @@ abstract class UnixProcess<P extends UnixProcess<P>> {
     }
 
     public List<UnixProcess> getChildren() {
-        ArrayList<UnixProcess> r = new ArrayList<>();
-        for (UnixProcess p : this.system) {
-            if (p.getParent() != this) {
-                continue;
-            }
-            r.add(p);
-        }
-        return r;
+        return new ArrayList<>(this.system.getChildren((P) this));
     }
 
     public void kill() {
@@ -111,7 +222,104 @@ abstract class UnixProcess<P extends UnixProcess<P>> {
         this.kill();
     }
 
+    public void killRecursively(KillStrategy strategy) {
+        if (strategy == null || strategy == KillStrategy.PROCESS) {
+            this.killRecursively();
+            return;
+        }
+        int ownPgid;
+        int ownSid;
+        try {
+            ownPgid = UnixCLibrary.LIBC.getpgid(0);
+            ownSid = UnixCLibrary.LIBC.getsid(0);
+        } catch (LinkageError e) {
+            LOGGER.log(Level.FINE, "libc not available, killing processes individually", e);
+            this.killRecursively();
+            return;
+        }
+        if (!this.system.hasAllProcesses()) {
+            // killpg would reach the members, that are not in the snapshot
+            LOGGER.log(Level.FINE, "Snapshot does not hold all processes, killing processes individually");
+            this.killRecursively();
+            return;
+        }
+        Set<UnixProcess<?>> tree = new LinkedHashSet<>();
+        this.collectTree(tree);
+        Map<Integer, List<P>> groups = new HashMap<>();
+        Map<Integer, List<P>> sessions = new HashMap<>();
+        IntFunction<List<P>> groupIndex = this.system.index(UnixSystem.Attribute.PGID);
+        IntFunction<List<P>> sessionIndex = strategy == KillStrategy.SESSION
+                ? this.system.index(UnixSystem.Attribute.SID)
+                : null;
+        Set<Integer> signalledGroups = new HashSet<>();
+        for (UnixProcess<?> p : tree) {
+            int pgid = p.getPgid();
+            if (signalledGroups.contains(pgid)) {
+                continue;
+            }
+            int sid = p.getSid();
+            if (sessionIndex != null && sid > 0 && sid != ownSid
+                    && containsAll(tree, sessions.computeIfAbsent(sid, sessionIndex::apply))) {
+                for (P member : sessions.get(sid)) {
+                    int memberPgid = member.getPgid();
+                    if (memberPgid > 0 && memberPgid != ownPgid && signalledGroups.add(memberPgid)) {
+                        killGroup(memberPgid, groups.computeIfAbsent(memberPgid, groupIndex::apply));
+                    }
+                }
+                if (signalledGroups.contains(pgid)) {
+                    continue;
+                }
+            }
+            if (pgid > 0 && pgid != ownPgid && containsAll(tree, groups.computeIfAbsent(pgid, groupIndex::apply))) {
+                signalledGroups.add(pgid);
+                killGroup(pgid, groups.get(pgid));
+                continue;
+            }
+            p.kill();
+        }
+    }
+
+    /**
+     * Collect the subtree rooted at this process, children are placed before
+     * their parents.
+     */
+    private void collectTree(Set<UnixProcess<?>> tree) {
+        for (UnixProcess<?> p : this.getChildren()) {
+            if (!tree.contains(p)) {
+                p.collectTree(tree);
+            }
+        }
+        tree.add(this);
+    }
+
+    /**
+     * An empty group means, that the snapshot does not know the group (the
+     * process changed it since), so it is never signalled as a whole.
+     */
+    private static boolean containsAll(Set<UnixProcess<?>> tree, List<? extends UnixProcess<?>> members) {
+        return !members.isEmpty() && tree.containsAll(members);
+    }
+
+    private static void killGroup(int pgid, List<? extends UnixProcess<?>> members) {
+        if (UnixCLibrary.LIBC.killpg(pgid, UnixCLibrary.SIGTERM) == 0) {
+            return;
+        }
+        LOGGER.log(Level.INFO, "Failed to signal process group {0}: {1}, falling back to single processes",
+                new Object[]{pgid, UnixCLibrary.LIBC.strerror(Native.getLastError())});
+        for (UnixProcess<?> p : members) {
+            p.kill();
+        }
+    }
+
     public abstract EnvVars getEnvVars();
 
     public abstract List<String> getArguments();
+
+    /**
+     * @return the arguments encoded with the platform charset, each argument
+     * terminated by a NUL byte
+     */
+    public byte[] getRawArguments() {
+        return ArgvMatcher.toCmdline(this.getArguments());
+    }
 }
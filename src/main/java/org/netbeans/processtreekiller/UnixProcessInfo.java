@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.IntFunction;
+
+/**
+ * {@link ProcessInfo} backed by a {@link UnixProcess}, that is only created
+ * when the first attribute besides the pid is accessed.
+ */
+final class UnixProcessInfo implements ProcessInfo {
+
+    private final int pid;
+    private IntFunction<UnixProcess<?>> loader;
+    private UnixProcess<?> process;
+
+    UnixProcessInfo(int pid, IntFunction<UnixProcess<?>> loader) {
+        this.pid = pid;
+        this.loader = loader;
+    }
+
+    UnixProcessInfo(UnixProcess<?> process) {
+        this.pid = process.getPid();
+        this.process = process;
+    }
+
+    @Override
+    public int getPid() {
+        return this.pid;
+    }
+
+    @Override
+    public OptionalInt getParentPid() {
+        UnixProcess<?> p = this.getProcess();
+        return p == null ? OptionalInt.empty() : OptionalInt.of(p.getPpid());
+    }
+
+    @Override
+    public Optional<List<String>> getArguments() {
+        UnixProcess<?> p = this.getProcess();
+        return p == null ? Optional.empty() : Optional.of(p.getArguments());
+    }
+
+    @Override
+    public Optional<Map<String, String>> getEnvironment() {
+        UnixProcess<?> p = this.getProcess();
+        return p == null ? Optional.empty() : Optional.of(Collections.unmodifiableMap(p.getEnvVars()));
+    }
+
+    synchronized UnixProcess<?> getProcess() {
+        if (this.loader != null) {
+            this.process = this.loader.apply(this.pid);
+            this.loader = null;
+        }
+        return this.process;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessInfo{" + "pid=" + this.pid + '}';
+    }
+}
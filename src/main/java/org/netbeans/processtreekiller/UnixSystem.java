@@ -24,23 +24,239 @@
  */
 package org.netbeans.processtreekiller;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
 
 abstract class UnixSystem<P extends UnixProcess<P>> implements Iterable<P> {
 
-    protected final Map<Integer, P> processes = new HashMap<>();
+    protected final Map<Integer, P> processes = new ConcurrentHashMap<>();
+    /**
+     * Compact pid/ppid table of the snapshot. If present, processes are only
+     * created when they are accessed.
+     */
+    protected final ProcessTable table;
+    /**
+     * False if the scan was stopped early by a {@link ScanControl}.
+     */
+    protected boolean complete = true;
+    /**
+     * True if the snapshot was restricted to some processes (a list of pids
+     * or a cgroup), so process groups and sessions might have members, that
+     * are not in it.
+     */
+    protected boolean restricted;
 
     UnixSystem() {
+        this(null);
+    }
+
+    UnixSystem(ProcessTable table) {
+        this.table = table;
+    }
+
+    boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * @return true if every process of the host is in this snapshot
+     */
+    boolean hasAllProcesses() {
+        return this.complete && !this.restricted;
     }
 
     public P get(int pid) {
-        return (P) ((UnixProcess) this.processes.get(pid));
+        P p = this.processes.get(pid);
+        if (p == null && this.table != null && this.table.indexOf(pid) >= 0) {
+            p = this.load(pid);
+        }
+        return p;
+    }
+
+    /**
+     * Create the process {@code pid} on demand (only needed for snapshots
+     * backed by a {@link ProcessTable}).
+     */
+    P load(int pid) {
+        return this.processes.get(pid);
+    }
+
+    List<P> getChildren(P parent) {
+        List<P> result = new ArrayList<>();
+        if (this.table != null) {
+            int row = this.table.indexOf(parent.getPid());
+            if (row >= 0) {
+                this.addChildren(row, result);
+            }
+            return result;
+        }
+        for (P p : this) {
+            if (p.getParent() == parent) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lookup of the processes of this snapshot by {@code attribute}. With a
+     * compact table the column is searched and only the matching processes
+     * are read, else the processes are grouped once.
+     */
+    IntFunction<List<P>> index(Attribute attribute) {
+        if (this.table == null) {
+            Map<Integer, List<P>> groups = new HashMap<>();
+            for (P p : this) {
+                groups.computeIfAbsent(attribute.get(p), k -> new ArrayList<>()).add(p);
+            }
+            return value -> groups.getOrDefault(value, Collections.emptyList());
+        }
+        return value -> {
+            List<P> result = new ArrayList<>();
+            if (attribute == Attribute.PPID) {
+                int row = this.table.indexOf(value);
+                if (row >= 0) {
+                    this.addChildren(row, result);
+                }
+            } else {
+                for (int row = 0; row < this.table.size(); row++) {
+                    if (attribute.get(this.table, row) == value) {
+                        this.addRow(row, result);
+                    }
+                }
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Add the children of {@code row} as recorded in the table. The children
+     * of a child, that exited since, were reparented, they take its place.
+     */
+    private void addChildren(int row, List<P> result) {
+        for (int n = 0; n < this.table.getChildCount(row); n++) {
+            int child = this.table.getChild(row, n);
+            P p = this.get(this.table.getPid(child));
+            if (p != null) {
+                result.add(p);
+            } else {
+                this.addChildren(child, result);
+            }
+        }
+    }
+
+    private void addRow(int row, List<P> result) {
+        P p = this.get(this.table.getPid(row));
+        if (p != null) {
+            result.add(p);
+        }
+    }
+
+    /**
+     * @return pids of the descendants of {@code roots} in this snapshot (not
+     * including the roots themselves)
+     */
+    Set<Integer> getDescendantPids(Collection<Integer> roots) {
+        if (this.table != null) {
+            return this.table.getDescendantPids(roots);
+        }
+        IntFunction<List<P>> children = this.index(Attribute.PPID);
+        Set<Integer> result = new HashSet<>();
+        Deque<Integer> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty()) {
+            for (P child : children.apply(queue.poll())) {
+                if (result.add(child.getPid())) {
+                    queue.add(child.getPid());
+                }
+            }
+        }
+        result.removeAll(roots);
+        return result;
+    }
+
+    /**
+     * @return pids of all processes of this snapshot, without reading them
+     */
+    int[] getPids() {
+        if (this.table == null) {
+            return Unix.toArray(this.processes.keySet());
+        }
+        int[] result = new int[this.table.size()];
+        for (int row = 0; row < result.length; row++) {
+            result[row] = this.table.getPid(row);
+        }
+        return result;
+    }
+
+    /**
+     * Attributes, that are also columns of the {@link ProcessTable}.
+     */
+    enum Attribute {
+        PPID,
+        PGID,
+        SID;
+
+        int get(UnixProcess<?> p) {
+            switch (this) {
+                case PPID:
+                    return p.getPpid();
+                case PGID:
+                    return p.getPgid();
+                default:
+                    return p.getSid();
+            }
+        }
+
+        int get(ProcessTable table, int row) {
+            switch (this) {
+                case PPID:
+                    return table.getPpid(row);
+                case PGID:
+                    return table.getPgid(row);
+                default:
+                    return table.getSid(row);
+            }
+        }
     }
 
     @Override
     public Iterator<P> iterator() {
-        return this.processes.values().iterator();
+        if (this.table == null) {
+            return this.processes.values().iterator();
+        }
+        return new Iterator<P>() {
+            private int row;
+            private P next;
+
+            @Override
+            public boolean hasNext() {
+                while (this.next == null && this.row < UnixSystem.this.table.size()) {
+                    this.next = UnixSystem.this.get(UnixSystem.this.table.getPid(this.row++));
+                }
+                return this.next != null;
+            }
+
+            @Override
+            public P next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                P result = this.next;
+                this.next = null;
+                return result;
+            }
+        };
     }
 }
@@ -24,12 +24,24 @@
  */
 package org.netbeans.processtreekiller;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.jvnet.winp.WinProcess;
 import org.jvnet.winp.WinpException;
 
 final class Windows extends ProcessTreeKiller {
 
+    private static final int OWN_PID = getOwnPid();
+
     Windows() {
     }
 
@@ -57,6 +69,158 @@ final class Windows extends ProcessTreeKiller {
         }
     }
 
+    @Override
+    public void kill(Collection<Map<String, String>> modelEnvVars) {
+        EnvVarIndex index = new EnvVarIndex(modelEnvVars);
+        if (index.isEmpty()) {
+            return;
+        }
+        Map<Integer, WinProcess> processes = new HashMap<>();
+        for (WinProcess p : WinProcess.all()) {
+            if (p.getPid() < 10) {
+                continue;
+            }
+            try {
+                index.add(p.getPid(), p.getEnvironmentVariables());
+            } catch (WinpException e) {
+                continue;
+            }
+            processes.put(p.getPid(), p);
+        }
+        for (int pid : index.matchAny()) {
+            processes.get(pid).killRecursively();
+        }
+    }
+
+    @Override
+    public void kill(ArgvMatcher matcher) {
+        for (WinProcess p : WinProcess.all()) {
+            boolean matched;
+            if (p.getPid() < 10 || p.getPid() == OWN_PID) {
+                continue;
+            }
+            try {
+                matched = matcher.matches(splitCommandLine(p.getCommandLine()));
+            } catch (WinpException e) {
+                continue;
+            }
+            if (!matched) {
+                continue;
+            }
+            p.killRecursively();
+        }
+    }
+
+    /**
+     * @return pid of the JVM, taken from the runtime name (pid@host), or -1
+     */
+    private static int getOwnPid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        try {
+            return Integer.parseInt(name.substring(0, name.indexOf('@')));
+        } catch (RuntimeException ex) {
+            return -1;
+        }
+    }
+
+    @Override
+    Stream<ProcessInfo> processes() {
+        return StreamSupport.stream(WinProcess.all().spliterator(), false)
+                .map(WindowsProcessInfo::new);
+    }
+
+    /**
+     * Split a command line following the rules of CommandLineToArgvW:
+     * whitespace separates arguments, double quotes group, 2n backslashes
+     * followed by a quote yield n backslashes.
+     */
+    static List<String> splitCommandLine(String commandLine) {
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+        boolean hasArgument = false;
+        int backslashes = 0;
+        for (int i = 0; i < commandLine.length(); i++) {
+            char c = commandLine.charAt(i);
+            if (c == '\\') {
+                backslashes++;
+                hasArgument = true;
+                continue;
+            }
+            if (c == '"') {
+                for (int j = 0; j < backslashes / 2; j++) {
+                    current.append('\\');
+                }
+                if (backslashes % 2 == 1) {
+                    current.append('"');
+                } else {
+                    inQuotes = !inQuotes;
+                }
+                backslashes = 0;
+                hasArgument = true;
+                continue;
+            }
+            for (; backslashes > 0; backslashes--) {
+                current.append('\\');
+            }
+            if ((c == ' ' || c == '\t') && !inQuotes) {
+                if (hasArgument) {
+                    result.add(current.toString());
+                    current.setLength(0);
+                    hasArgument = false;
+                }
+            } else {
+                current.append(c);
+                hasArgument = true;
+            }
+        }
+        for (; backslashes > 0; backslashes--) {
+            current.append('\\');
+        }
+        if (hasArgument) {
+            result.add(current.toString());
+        }
+        return result;
+    }
+
+    private static final class WindowsProcessInfo implements ProcessInfo {
+
+        private final WinProcess process;
+
+        WindowsProcessInfo(WinProcess process) {
+            this.process = process;
+        }
+
+        @Override
+        public int getPid() {
+            return this.process.getPid();
+        }
+
+        @Override
+        public OptionalInt getParentPid() {
+            // not provided by winp
+            return OptionalInt.empty();
+        }
+
+        @Override
+        public Optional<List<String>> getArguments() {
+            try {
+                return Optional.of(splitCommandLine(this.process.getCommandLine()));
+            } catch (WinpException e) {
+                return Optional.empty();
+            }
+        }
+
+        @Override
+        public Optional<Map<String, String>> getEnvironment() {
+            try {
+                return Optional.of(Collections.unmodifiableMap(this.process.getEnvironmentVariables()));
+            } catch (WinpException e) {
+                return Optional.empty();
+            }
+        }
+    }
+
     static {
         if (System.getProperty("winp.folder.preferred") == null) {
             String userhome = System.getProperty("netbeans.user");
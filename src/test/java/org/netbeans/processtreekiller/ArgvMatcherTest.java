@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class ArgvMatcherTest {
+
+    @Test
+    public void testGlob() {
+        ArgvMatcher matcher = ArgvMatcher.builder().glob(0, "*/java").build();
+        assertTrue(matcher.matches(Arrays.asList("/usr/bin/java", "-version")));
+        assertTrue(matcher.matches(Arrays.asList("/java")));
+        assertFalse(matcher.matches(Arrays.asList("/usr/bin/javac")));
+        assertFalse(matcher.matches(Arrays.asList("java")));
+
+        matcher = ArgvMatcher.builder().glob(ArgvMatcher.ANY, "-Xmx?g").build();
+        assertTrue(matcher.matches(Arrays.asList("java", "-Xmx4g")));
+        assertFalse(matcher.matches(Arrays.asList("java", "-Xmxg")));
+        assertFalse(matcher.matches(Arrays.asList("java", "-Xmx16g")));
+
+        matcher = ArgvMatcher.builder().glob(1, "*").build();
+        assertTrue(matcher.matches(Arrays.asList("java", "")));
+        assertFalse(matcher.matches(Arrays.asList("java")));
+
+        matcher = ArgvMatcher.builder().glob(0, "a\\*b").build();
+        assertTrue(matcher.matches(Arrays.asList("a*b")));
+        assertFalse(matcher.matches(Arrays.asList("axb")));
+    }
+
+    @Test
+    public void testNulSeparatedCmdline() {
+        ArgvMatcher matcher = ArgvMatcher.builder()
+            .literal(1, "-jar")
+            .literal(ArgvMatcher.ANY, "app.jar")
+            .build();
+        byte[] terminated = "java\0-jar\0app.jar\0".getBytes(StandardCharsets.US_ASCII);
+        byte[] unterminated = "java\0-jar\0app.jar".getBytes(StandardCharsets.US_ASCII);
+        assertTrue(matcher.matches(terminated));
+        assertTrue(matcher.matches(unterminated));
+        // The separator is not part of the argument
+        assertFalse(matcher.matches("java\0-jar app.jar\0".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(matcher.matches("java-jar\0app.jar\0".getBytes(StandardCharsets.US_ASCII)));
+
+        // Consecutive separators delimit an empty argument
+        matcher = ArgvMatcher.builder().literal(1, "").literal(2, "x").build();
+        assertTrue(matcher.matches("sh\0\0x\0".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testRegexOnNonAsciiArgument() {
+        assumeTrue(StandardCharsets.UTF_8.equals(Charset.defaultCharset()));
+        byte[] cmdline = "java\0-Duser.name=Bläsing\0".getBytes(StandardCharsets.UTF_8);
+        assertTrue(ArgvMatcher.builder().regex(1, "-Duser\\.name=Bl.sing").build().matches(cmdline));
+        assertTrue(ArgvMatcher.builder().regex(ArgvMatcher.ANY, ".*ä.*").build().matches(cmdline));
+        assertFalse(ArgvMatcher.builder().regex(1, "-Duser\\.name=Blasing").build().matches(cmdline));
+        assertTrue(ArgvMatcher.builder().literal(1, "-Duser.name=Bläsing").build().matches(cmdline));
+        // ASCII arguments next to non-ASCII ones
+        assertTrue(ArgvMatcher.builder().regex(0, "j.v.").build().matches(cmdline));
+    }
+
+    @Test
+    public void testEmptyArgv() {
+        byte[] empty = new byte[0];
+        assertTrue(ArgvMatcher.builder().build().matches(empty));
+        assertFalse(ArgvMatcher.builder().literal(0, "").build().matches(empty));
+        assertFalse(ArgvMatcher.builder().glob(ArgvMatcher.ANY, "*").build().matches(empty));
+        assertFalse(ArgvMatcher.builder().regex(ArgvMatcher.ANY, ".*").build()
+            .matches(Collections.<String>emptyList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPosition() {
+        ArgvMatcher.builder().literal(-2, "java");
+    }
+}
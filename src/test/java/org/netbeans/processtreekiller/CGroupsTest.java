@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CGroupsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Path write(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private Path cgroupFile(String content) throws Exception {
+        return write(this.folder.getRoot().toPath().resolve("proc").resolve("cgroup"), content);
+    }
+
+    @Test
+    public void testUnified() throws Exception {
+        Path root = this.folder.newFolder("cgroup").toPath();
+        write(root.resolve("cgroup.controllers"), "cpu memory pids\n");
+        Files.createDirectories(root.resolve("user.slice/session-1.scope"));
+        Path cgroup = this.cgroupFile("0::/user.slice/session-1.scope\n");
+        assertEquals(root.resolve("user.slice/session-1.scope"), CGroups.getCgroupDirectory(root, cgroup));
+        assertEquals(root.resolve("user.slice/session-1.scope"), CGroups.getUnifiedDirectory(root, cgroup));
+    }
+
+    @Test
+    public void testUnifiedRoot() throws Exception {
+        Path root = this.folder.newFolder("cgroup").toPath();
+        write(root.resolve("cgroup.controllers"), "");
+        Path cgroup = this.cgroupFile("0::/\n");
+        assertEquals(root, CGroups.getCgroupDirectory(root, cgroup));
+    }
+
+    @Test
+    public void testV1DeepestHierarchy() throws Exception {
+        Path root = this.folder.newFolder("cgroup").toPath();
+        Files.createDirectories(root.resolve("cpu,cpuacct/docker"));
+        Files.createDirectories(root.resolve("pids/docker/abc"));
+        Files.createDirectories(root.resolve("systemd/docker/abc"));
+        Path cgroup = this.cgroupFile(""
+                + "4:cpu,cpuacct:/docker\n"
+                + "3:pids:/docker/abc\n"
+                + "2:memory:/docker/abc\n"
+                + "1:name=systemd:/docker/abc\n");
+        // memory is not mounted, pids is the first of the deepest
+        assertEquals(root.resolve("pids/docker/abc"), CGroups.getCgroupDirectory(root, cgroup));
+        assertNull(CGroups.getUnifiedDirectory(root, cgroup));
+    }
+
+    @Test
+    public void testHybrid() throws Exception {
+        Path root = this.folder.newFolder("cgroup").toPath();
+        Files.createDirectories(root.resolve("pids/user.slice"));
+        write(root.resolve("unified/cgroup.controllers"), "");
+        Files.createDirectories(root.resolve("unified/user.slice/app.scope"));
+        Path cgroup = this.cgroupFile(""
+                + "3:pids:/user.slice\n"
+                + "0::/user.slice/app.scope\n");
+        // v1 hierarchies are preferred unless the root is a pure v2 mount
+        assertEquals(root.resolve("pids/user.slice"), CGroups.getCgroupDirectory(root, cgroup));
+        assertEquals(root.resolve("unified/user.slice/app.scope"), CGroups.getUnifiedDirectory(root, cgroup));
+    }
+
+    @Test
+    public void testUndeterminable() throws Exception {
+        Path root = this.folder.newFolder("cgroup").toPath();
+        Path cgroup = this.cgroupFile("2:memory:/docker/abc\n");
+        assertNull(CGroups.getCgroupDirectory(root, cgroup));
+        assertNull(CGroups.getUnifiedDirectory(root, cgroup));
+    }
+
+    @Test
+    public void testListProcessesRecursively() throws Exception {
+        Path dir = this.folder.newFolder("app").toPath();
+        write(dir.resolve("cgroup.procs"), "300\n12\n");
+        write(dir.resolve("worker/cgroup.procs"), "45\n12\n\n");
+        write(dir.resolve("worker/nested/cgroup.procs"), "");
+        write(dir.resolve("worker/cgroup.threads"), "46\n");
+        assertArrayEquals(new int[]{12, 45, 300}, CGroups.listProcesses(dir));
+    }
+
+    @Test
+    public void testKillAndFreeze() throws Exception {
+        Path dir = this.folder.newFolder("app").toPath();
+        assertFalse(CGroups.kill(dir));
+        assertFalse(CGroups.freeze(dir, true));
+        write(dir.resolve("cgroup.kill"), "");
+        write(dir.resolve("cgroup.freeze"), "0\n");
+        assertTrue(CGroups.kill(dir));
+        assertEquals("1", new String(Files.readAllBytes(dir.resolve("cgroup.kill")), StandardCharsets.ISO_8859_1));
+        assertTrue(CGroups.freeze(dir, true));
+        assertEquals("1", new String(Files.readAllBytes(dir.resolve("cgroup.freeze")), StandardCharsets.ISO_8859_1));
+        assertTrue(CGroups.freeze(dir, false));
+        assertEquals("0", new String(Files.readAllBytes(dir.resolve("cgroup.freeze")), StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DarwinProcArgsTest {
+
+    /**
+     * Build a KERN_PROCARGS2 result: argc, exec path, {@code padding} NUL
+     * bytes and the NUL terminated strings.
+     */
+    private static ByteBuffer procargs(ByteOrder order, int argc, String execPath, int padding, String... strings) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer count = ByteBuffer.allocate(4).order(order).putInt(argc);
+        out.write(count.array(), 0, 4);
+        byte[] path = execPath.getBytes(StandardCharsets.UTF_8);
+        out.write(path, 0, path.length);
+        for (int i = 0; i < padding; i++) {
+            out.write(0);
+        }
+        for (String s : strings) {
+            byte[] data = s.getBytes(StandardCharsets.UTF_8);
+            out.write(data, 0, data.length);
+            out.write(0);
+        }
+        return ByteBuffer.wrap(out.toByteArray()).order(order);
+    }
+
+    @Test
+    public void testArgumentsAndEnvironment() {
+        ByteBuffer buffer = procargs(ByteOrder.LITTLE_ENDIAN, 2, "/usr/bin/java", 7,
+                "java", "-version", "HOME=/Users/test", "LANG=en_US.UTF-8", "");
+        List<String> arguments = new ArrayList<>();
+        EnvVars envVars = new EnvVars();
+        DarwinProcArgs.parse(buffer, StandardCharsets.UTF_8, arguments, envVars);
+        assertEquals(Arrays.asList("java", "-version"), arguments);
+        assertEquals(2, envVars.size());
+        assertEquals("/Users/test", envVars.get("HOME"));
+        assertEquals("en_US.UTF-8", envVars.get("LANG"));
+    }
+
+    @Test
+    public void testArgcInBufferByteOrder() {
+        ByteBuffer buffer = procargs(ByteOrder.BIG_ENDIAN, 3, "/bin/sh", 1, "sh", "-c", "true", "A=1");
+        List<String> arguments = new ArrayList<>();
+        EnvVars envVars = new EnvVars();
+        DarwinProcArgs.parse(buffer, StandardCharsets.UTF_8, arguments, envVars);
+        assertEquals(Arrays.asList("sh", "-c", "true"), arguments);
+        assertEquals("1", envVars.get("A"));
+    }
+
+    @Test
+    public void testExecPathPaddingToWordBoundary() {
+        // the kernel pads the exec path with NULs up to the pointer size
+        for (int padding = 1; padding <= 8; padding++) {
+            ByteBuffer buffer = procargs(ByteOrder.LITTLE_ENDIAN, 1, "/a", padding, "a", "X=y");
+            List<String> arguments = new ArrayList<>();
+            EnvVars envVars = new EnvVars();
+            DarwinProcArgs.parse(buffer, StandardCharsets.UTF_8, arguments, envVars);
+            assertEquals(Arrays.asList("a"), arguments);
+            assertEquals("y", envVars.get("X"));
+        }
+    }
+
+    @Test
+    public void testNonAsciiArguments() {
+        ByteBuffer buffer = procargs(ByteOrder.LITTLE_ENDIAN, 2, "/bin/echo", 2, "echo", "café", "N=ü");
+        List<String> arguments = new ArrayList<>();
+        EnvVars envVars = new EnvVars();
+        DarwinProcArgs.parse(buffer, StandardCharsets.UTF_8, arguments, envVars);
+        assertEquals(Arrays.asList("echo", "café"), arguments);
+        assertEquals("ü", envVars.get("N"));
+    }
+
+    @Test
+    public void testTruncatedEnvironment() {
+        ByteBuffer full = procargs(ByteOrder.LITTLE_ENDIAN, 1, "/bin/ls", 1, "ls", "A=1", "B=23");
+        // cut off the terminator of the last variable and one character
+        ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(full.array(), full.limit() - 2)).order(ByteOrder.LITTLE_ENDIAN);
+        List<String> arguments = new ArrayList<>();
+        EnvVars envVars = new EnvVars();
+        DarwinProcArgs.parse(buffer, StandardCharsets.UTF_8, arguments, envVars);
+        assertEquals(Arrays.asList("ls"), arguments);
+        assertEquals("1", envVars.get("A"));
+        assertEquals("2", envVars.get("B"));
+    }
+
+    @Test
+    public void testTruncatedArguments() {
+        ByteBuffer buffer = procargs(ByteOrder.LITTLE_ENDIAN, 3, "/bin/ls", 1, "ls");
+        List<String> arguments = new ArrayList<>();
+        try {
+            DarwinProcArgs.parse(buffer, StandardCharsets.UTF_8, arguments, new EnvVars());
+            throw new AssertionError("Truncated arguments not detected");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getMessage().contains("nargs=3"));
+        }
+        assertEquals(Arrays.asList("ls"), arguments);
+    }
+}
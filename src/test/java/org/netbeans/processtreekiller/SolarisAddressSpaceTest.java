@@ -0,0 +1,130 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+public class SolarisAddressSpaceTest {
+
+    private static final int PAGE = SolarisAddressSpace.PAGE_SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(ByteBuffer content) throws Exception {
+        Path file = this.folder.newFile("as").toPath();
+        Files.write(file, content.array());
+        return file;
+    }
+
+    private static void putString(ByteBuffer b, int address, String value) {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        b.position(address);
+        b.put(data).put((byte) 0);
+    }
+
+    @Test
+    public void testPointers32() throws Exception {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ByteBuffer b = ByteBuffer.allocate(2 * PAGE).order(order);
+            // argv array crossing the page boundary
+            int argv = PAGE - 6;
+            b.putInt(argv, 0x100).putInt(argv + 4, 0x200).putInt(argv + 8, 0);
+            putString(b, 0x100, "java");
+            putString(b, 0x200, "-version");
+            Path file = this.folder.newFolder().toPath().resolve("as");
+            Files.write(file, b.array());
+            try (SolarisAddressSpace as = new SolarisAddressSpace(file, order)) {
+                assertEquals(0x100, as.readPointer(argv, 4));
+                assertEquals(0x200, as.readPointer(argv + 4, 4));
+                assertEquals(0, as.readPointer(argv + 8, 4));
+                assertEquals("java", as.readString(as.readPointer(argv, 4), StandardCharsets.UTF_8));
+                assertEquals("-version", as.readString(as.readPointer(argv + 4, 4), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testPointers64() throws Exception {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            ByteBuffer b = ByteBuffer.allocate(2 * PAGE).order(order);
+            int argv = PAGE - 12;
+            b.putLong(argv, 0x180).putLong(argv + 8, PAGE + 0x80).putLong(argv + 16, 0);
+            putString(b, 0x180, "sh");
+            putString(b, PAGE + 0x80, "HOME=/export/home/test");
+            Path file = this.folder.newFolder().toPath().resolve("as");
+            Files.write(file, b.array());
+            try (SolarisAddressSpace as = new SolarisAddressSpace(file, order)) {
+                assertEquals(0x180, as.readPointer(argv, 8));
+                assertEquals(PAGE + 0x80, as.readPointer(argv + 8, 8));
+                assertEquals(0, as.readPointer(argv + 16, 8));
+                assertEquals("sh", as.readString(0x180, StandardCharsets.UTF_8));
+                assertEquals("HOME=/export/home/test", as.readString(PAGE + 0x80, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsignedPointer32() throws Exception {
+        ByteBuffer b = ByteBuffer.allocate(PAGE).order(ByteOrder.BIG_ENDIAN);
+        b.putInt(16, 0xFFBFF000);
+        try (SolarisAddressSpace as = new SolarisAddressSpace(this.write(b), ByteOrder.BIG_ENDIAN)) {
+            assertEquals(0xFFBFF000L, as.readPointer(16, 4));
+        }
+    }
+
+    @Test
+    public void testStringAcrossPages() throws Exception {
+        ByteBuffer b = ByteBuffer.allocate(3 * PAGE);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < PAGE + 100; i++) {
+            value.append((char) ('a' + i % 26));
+        }
+        putString(b, PAGE - 50, value.toString());
+        try (SolarisAddressSpace as = new SolarisAddressSpace(this.write(b))) {
+            assertEquals(value.toString(), as.readString(PAGE - 50, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testStringAtEndOfFile() throws Exception {
+        // no terminator before the end of the readable memory
+        ByteBuffer b = ByteBuffer.allocate(PAGE + 10);
+        b.position(PAGE + 4);
+        b.put("abcdef".getBytes(StandardCharsets.UTF_8));
+        try (SolarisAddressSpace as = new SolarisAddressSpace(this.write(b))) {
+            assertEquals("abcdef", as.readString(PAGE + 4, StandardCharsets.UTF_8));
+        }
+    }
+}
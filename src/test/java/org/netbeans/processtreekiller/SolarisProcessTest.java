@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi
+ * Copyright (c) 2020, Matthias Bläsing
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.processtreekiller;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SolarisProcessTest {
+
+    private static final long START_SECONDS = 1700000000L;
+    private static final long START_NANOS = 250000000L;
+
+    private static ByteBuffer psinfo32(ByteOrder order) {
+        ByteBuffer b = ByteBuffer.allocate(SolarisProcess.PSINFO_SIZE_32).order(order);
+        b.putInt(8, 4711).putInt(12, 1).putInt(16, 4700).putInt(20, 4600).putInt(24, 1000);
+        b.putInt(48, 2048);
+        b.putInt(64, (int) START_SECONDS).putInt(68, (int) START_NANOS);
+        b.putInt(188, 3).putInt(192, 0xFFBFF000).putInt(196, 0xFFBFF010);
+        b.put(200, (byte) 1);
+        return b;
+    }
+
+    private static ByteBuffer psinfo64(ByteOrder order, byte dmodel) {
+        ByteBuffer b = ByteBuffer.allocate(SolarisProcess.PSINFO_SIZE_64).order(order);
+        b.putInt(8, 4711).putInt(12, 1).putInt(16, 4700).putInt(20, 4600).putInt(24, 1000);
+        // pr_size at 48 must not be mistaken for pr_rssize
+        b.putLong(48, 99999).putLong(56, 2048);
+        b.putLong(88, START_SECONDS).putLong(96, START_NANOS);
+        b.putInt(236, 3).putLong(240, 0xFFFFFD7FFFDFF000L).putLong(248, 0xFFFFFD7FFFDFF020L);
+        b.put(256, dmodel);
+        return b;
+    }
+
+    @Test
+    public void testDecode32() {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            SolarisProcess.Psinfo info = new SolarisProcess.Psinfo(psinfo32(order), false);
+            assertEquals(4711, info.pid);
+            assertEquals(1, info.ppid);
+            assertEquals(4700, info.pgid);
+            assertEquals(4600, info.sid);
+            assertEquals(1000, info.uid);
+            assertEquals(2048 * 1024, info.rss);
+            assertEquals(START_SECONDS * 1000 + 250, info.startTime);
+            assertEquals(3, info.argc);
+            // addresses are unsigned
+            assertEquals(0xFFBFF000L, info.argv);
+            assertEquals(0xFFBFF010L, info.envp);
+            assertEquals(4, info.pointerSize);
+        }
+    }
+
+    @Test
+    public void testDecode64() {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            SolarisProcess.Psinfo info = new SolarisProcess.Psinfo(psinfo64(order, (byte) 2), true);
+            assertEquals(4711, info.pid);
+            assertEquals(1, info.ppid);
+            assertEquals(4700, info.pgid);
+            assertEquals(4600, info.sid);
+            assertEquals(1000, info.uid);
+            assertEquals(2048 * 1024, info.rss);
+            assertEquals(START_SECONDS * 1000 + 250, info.startTime);
+            assertEquals(3, info.argc);
+            assertEquals(0xFFFFFD7FFFDFF000L, info.argv);
+            assertEquals(0xFFFFFD7FFFDFF020L, info.envp);
+            assertEquals(8, info.pointerSize);
+        }
+    }
+
+    @Test
+    public void testDecode64Of32BitProcess() {
+        SolarisProcess.Psinfo info = new SolarisProcess.Psinfo(psinfo64(ByteOrder.BIG_ENDIAN, (byte) 1), true);
+        assertEquals(4, info.pointerSize);
+    }
+}